@@ -0,0 +1,295 @@
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Anytime repairing A* (ARA*). A route is found quickly by trusting
+ * the heuristic more than it deserves, ordering the open list by
+ * g + w * h with a weight w above 1, and is then improved by searching
+ * again with smaller and smaller weights until w reaches 1.
+ *
+ * Each search reuses the work of the one before. The cheapest cost
+ * found to every state is kept throughout and a state is expanded at
+ * most once per search; states reached more cheaply after they were
+ * expanded wait in an inconsistent list for the next search.
+ *
+ * After each search the route is reported with a proven bound on how
+ * far it can be from optimal, the cost of the route over the smallest
+ * g + h still waiting. Every State reached more cheaply is waiting
+ * somewhere, so this holds for any admissible heuristic, consistent
+ * or not. A bound of 1 means the route is optimal. Once w is 1 the
+ * inconsistent States are searched again until none are left, so an
+ * unlimited search always ends there. It stops sooner if its time
+ * budget runs out, keeping the best route so far
+ */
+public class AnytimeSearch {
+	private static final double EPSILON = 1e-9;
+	private static final int CLOCK_CHECKS = 256;
+
+	/**
+	 * Told each time the route is improved or its bound tightened
+	 */
+	public interface Listener {
+		/**
+		 * @param goal State of the best route so far
+		 * @param double proven bound, the route costs at most this
+		 * many times the optimal cost
+		 * @param long milliseconds since the search started
+		 */
+		void improved(State goal, double bound, long millis);
+	}
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private IStrategy calcH;
+	private SearchMetrics metrics;
+	private Listener listener;
+
+	private StateTable bestCost;
+	private StateTable closed;
+	private PriorityQueue<Entry> open;
+	private ArrayList<State> inconsistent;
+	private State incumbent;
+	private State known;
+	private double weight;
+	private double bound;
+
+	/**
+	 * @param CompiledGraph to search
+	 * @param index of required flights
+	 * @param heuristic strategy, which must be admissible
+	 * @param SearchMetrics to count into
+	 * @param Listener told of every improvement
+	 */
+	public AnytimeSearch(CompiledGraph map, FlightIndex flights, IStrategy heuristic, SearchMetrics counts,
+			Listener toTell) {
+		network = map;
+		required = flights;
+		calcH = heuristic;
+		metrics = counts;
+		listener = toTell;
+	}
+
+	/**
+	 * Starts the next search from a route already known, so only
+	 * cheaper routes are searched for
+	 * @param goal State of the route, which must start from the
+	 * city the search does
+	 */
+	public void startFrom(State route) {
+		known = route;
+	}
+
+	/**
+	 * Finds a route from the given city which contains all the
+	 * flights requested, improving it while there is time
+	 * @precondition at least one flight is required
+	 * @param integer city id to start from
+	 * @param double weight of the first search, at least 1
+	 * @param double amount the weight drops by each search
+	 * @param long milliseconds to search for, 0 for no limit. The first
+	 * route is always waited for
+	 * @return the Goal State of the best route found. null if no
+	 * route exists
+	 */
+	public State search(int start, double firstWeight, double step, long budget) {
+		long started = System.nanoTime();
+		long deadline = budget > 0 ? started + budget * 1000000 : Long.MAX_VALUE;
+
+		bestCost = new StateTable(required.size());
+		open = new PriorityQueue<Entry>();
+		inconsistent = new ArrayList<State>();
+		incumbent = known;
+		known = null;
+		weight = Math.max(1, firstWeight);
+		bound = Double.POSITIVE_INFINITY;
+
+		State initial = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+		initial.updateH(calcH.calcHCost(initial));
+		metrics.startCounting(true);
+		metrics.setRootH(initial.getHeur());
+		bestCost.put(start, initial.getCoverage(), 0);
+		open.add(new Entry(initial, weight));
+
+		while(true) {
+			closed = new StateTable(required.size());
+			State before = incumbent;
+			double boundBefore = bound;
+			boolean finished = improvePath(deadline);
+
+			if(incumbent == null) {
+				return null;
+			}
+			// THE WEIGHT ONLY BOUNDS THE ROUTE FOR A CONSISTENT HEURISTIC
+			bound = Math.min(bound, proveBound());
+			if(incumbent != before || bound < boundBefore - EPSILON) {
+				listener.improved(incumbent, bound, (System.nanoTime() - started) / 1000000);
+			}
+			if(!finished || bound <= 1 + EPSILON || weight <= 1 && inconsistent.isEmpty()) {
+				return incumbent;
+			}
+			weight = Math.max(1, weight - step);
+			reopen();
+		}
+	}
+
+	/**
+	 * Gives the bound proven on the route last returned
+	 * @return double, 1 if it is optimal
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * Expands States until none left could lead to a cheaper route
+	 * at the current weight
+	 * @return true if it got there, false if time ran out first
+	 */
+	private boolean improvePath(long deadline) {
+		int sinceClock = 0;
+
+		while(!open.isEmpty()) {
+			Entry top = open.peek();
+			if(incumbent != null && top.key >= incumbent.getCostSoFar()) {
+				return true;
+			}
+			if(++sinceClock == CLOCK_CHECKS) {
+				sinceClock = 0;
+				if(incumbent != null && System.nanoTime() > deadline) {
+					return false;
+				}
+			}
+			open.poll();
+
+			State current = top.state;
+			if(current.getCostSoFar() > bestCost.get(current.getLocation(), current.getCoverage())
+					|| closed.contains(current.getLocation(), current.getCoverage())) {
+				metrics.countPruned();
+				continue;
+			}
+			if(incumbent != null && current.calcF() >= incumbent.getCostSoFar()) {
+				continue;
+			}
+			closed.put(current.getLocation(), current.getCoverage(), current.getCostSoFar());
+			metrics.countExpanded();
+			expand(current);
+		}
+		return true;
+	}
+
+	private void expand(State current) {
+		int city = current.getLocation();
+
+		for(int edge = network.edgeStart(city); edge < network.edgeEnd(city); edge++) {
+			int child = network.getTarget(edge);
+			int cost = current.getCostSoFar() + network.getWeight(edge);
+			Coverage covered = required.cover(current.getCoverage(), edge);
+			metrics.countGenerated();
+
+			// NO DELAY AFTER LANDING THE LAST FLIGHT
+			if(covered.numCovered() == required.size()) {
+				cost -= network.getDelay(child);
+				if(incumbent == null || cost < incumbent.getCostSoFar()) {
+					incumbent = new State(child, current, edge, cost, 0, covered);
+				}
+				continue;
+			}
+
+			int seen = bestCost.get(child, covered);
+			if(seen != -1 && seen <= cost) {
+				metrics.countPruned();
+				continue;
+			}
+			bestCost.put(child, covered, cost);
+
+			State temp = new State(child, current, edge, cost, current.getHeur(), covered);
+			temp.updateH(calcH.calcHCost(temp));
+			if(incumbent != null && temp.calcF() >= incumbent.getCostSoFar()) {
+				continue;
+			}
+			if(closed.contains(child, covered)) {
+				// WAITS FOR THE NEXT SEARCH
+				inconsistent.add(temp);
+				metrics.countReopened();
+			} else {
+				open.add(new Entry(temp, weight));
+				metrics.seenOpen(open.size());
+			}
+		}
+	}
+
+	/**
+	 * Smallest the optimal cost could be is the smallest g + h of
+	 * any State still waiting, or the route found if that is less
+	 * @return double cost of the route over that
+	 */
+	private double proveBound() {
+		long lowest = incumbent.getCostSoFar();
+
+		for(Entry entry: open) {
+			if(isCurrent(entry.state)) {
+				lowest = Math.min(lowest, entry.state.calcF());
+			}
+		}
+		for(State state: inconsistent) {
+			if(isCurrent(state)) {
+				lowest = Math.min(lowest, state.calcF());
+			}
+		}
+		if(lowest <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return (double) incumbent.getCostSoFar() / lowest;
+	}
+
+	/**
+	 * Moves the inconsistent States back into the open list and
+	 * orders it by the new weight
+	 */
+	private void reopen() {
+		PriorityQueue<Entry> reordered = new PriorityQueue<Entry>(Math.max(1, open.size() + inconsistent.size()));
+
+		for(Entry entry: open) {
+			if(isCurrent(entry.state) && entry.state.calcF() < incumbent.getCostSoFar()) {
+				reordered.add(new Entry(entry.state, weight));
+			}
+		}
+		for(State state: inconsistent) {
+			if(isCurrent(state) && state.calcF() < incumbent.getCostSoFar()) {
+				reordered.add(new Entry(state, weight));
+			}
+		}
+		open = reordered;
+		inconsistent = new ArrayList<State>();
+	}
+
+	/**
+	 * Checks a State is still the cheapest way found to its city
+	 * and coverage
+	 */
+	private boolean isCurrent(State state) {
+		return state.getCostSoFar() == bestCost.get(state.getLocation(), state.getCoverage());
+	}
+
+	/**
+	 * A State in the open list with its inflated f-cost
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private double key;
+		private State state;
+
+		Entry(State toAdd, double weight) {
+			state = toAdd;
+			key = toAdd.getCostSoFar() + weight * toAdd.getHeur();
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int diff = Double.compare(key, other.key);
+			if(diff == 0) {
+				return state.getHeur() - other.state.getHeur();
+			}
+			return diff;
+		}
+	}
+}
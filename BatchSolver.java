@@ -0,0 +1,254 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Solves many request files against one network in a single run.
+ * The compiled network, its shortest path table and any pattern
+ * database or result cache are shared by every solve, since none of
+ * them change, and the solves run on a work stealing pool.
+ *
+ * Requests are given either as a directory, every file in it being
+ * one request, or as a manifest listing one request file per line
+ * with an optional start city after it. Request files are read like
+ * inputs: Flight lines are the request, and any City or Time lines
+ * are skipped since the network is already known.
+ *
+ * Each answer is written to the output directory, exactly as the
+ * command line prints it, in a file named after the request plus
+ * ".out". For a manifest the name is the path as listed, with
+ * separators turned into _, and the start city if one is given, so
+ * files of the same name in different directories or one file with
+ * two start cities don't overwrite each other. The answer is
+ * "Error message" if the request can't be read or solved, which only
+ * fails that request and not the batch. The largest requests
+ * are started first so a long one doesn't hold up the end of the batch
+ */
+public class BatchSolver {
+	private CompiledGraph network;
+	private Supplier<ShortestPaths> paths;
+	private PatternDatabase patterns;
+	private ResultCache results;
+	private String[] options;
+	private int numThreads;
+
+	/**
+	 * @param CompiledGraph to solve requests on
+	 * @param giver of the ShortestPaths of the network, only
+	 * asked once a search needs the table
+	 * @param command line arguments holding the search options
+	 */
+	public BatchSolver(CompiledGraph map, Supplier<ShortestPaths> table, String[] args) {
+		network = map;
+		paths = table;
+		options = args;
+		numThreads = Integer.parseInt(FlightScheduler.option(args, "batch-threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+	}
+
+	/**
+	 * Gives every search the tables of a PatternDatabase
+	 * @param PatternDatabase built for the network. null for none
+	 */
+	public void usePatterns(PatternDatabase database) {
+		patterns = database;
+	}
+
+	/**
+	 * Shares a ResultCache between every search
+	 * @param ResultCache for the network. null for none
+	 */
+	public void useResults(ResultCache cache) {
+		results = cache;
+	}
+
+	/**
+	 * Solves every request in a directory or manifest
+	 * @param String directory of request files, or manifest file
+	 * @param String directory the answers are written to
+	 * @return integer number of requests which couldn't be solved
+	 */
+	public int solve(String requests, String outputs) throws IOException, InterruptedException {
+		List<Job> jobs = readJobs(new File(requests));
+		File outDir = new File(outputs);
+		Files.createDirectories(outDir.toPath());
+
+		jobs.sort((a, b) -> Long.compare(b.size, a.size));
+		ArrayList<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		for(Job job: jobs) {
+			tasks.add(() -> answer(job, outDir));
+		}
+
+		long started = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		int failed = 0;
+		try {
+			for(Future<Boolean> solved: pool.invokeAll(tasks)) {
+				if(!solved.get()) {
+					failed++;
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		System.err.println(jobs.size() + " requests solved in " + (System.nanoTime() - started) / 1000000
+				+ " ms on " + numThreads + " threads, " + failed + " failed");
+		return failed;
+	}
+
+	/**
+	 * Solves one request and writes its answer. A request file which
+	 * can't be read is answered with an Error like any other failure
+	 * @return true if it was solved and written. false otherwise
+	 */
+	private boolean answer(Job job, File outDir) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(buffer);
+		boolean solved = true;
+
+		try {
+			ArrayList<String[]> flights = new ArrayList<String[]>();
+			int lineNumber = 0;
+
+			for(String line: Files.readAllLines(job.file.toPath(), StandardCharsets.UTF_8)) {
+				lineNumber++;
+				String[] tokens = line.trim().split("\\s+");
+				if(tokens[0].isEmpty() || tokens[0].equals("City") || tokens[0].equals("Time")) {
+					continue;
+				}
+				if(tokens.length != 3 || !tokens[0].equals("Flight")) {
+					throw new IllegalArgumentException(job.file.getName() + ":" + lineNumber
+							+ ": expected Flight from to but got " + line);
+				}
+				flights.add(tokens);
+			}
+			int[] from = new int[flights.size()];
+			int[] to = new int[flights.size()];
+			for(int i = 0; i < flights.size(); i++) {
+				from[i] = city(flights.get(i)[1]);
+				to[i] = city(flights.get(i)[2]);
+			}
+
+			FlightScheduler fs = new FlightScheduler(network, paths);
+			if(patterns != null) {
+				fs.usePatterns(patterns);
+			}
+			if(results != null) {
+				fs.useResults(results);
+			}
+			fs.setStart(job.start);
+			fs.require(from, to);
+			if(from.length > 0) {
+				fs.solve(options, out);
+			}
+		} catch (NoSuchFileException e) {
+			out.println("Error no such file " + job.file);
+			solved = false;
+		} catch (IOException e) {
+			out.println("Error can't read " + job.file + ": " + e.getMessage());
+			solved = false;
+		} catch (RuntimeException | InterruptedException e) {
+			out.println("Error " + e.getMessage());
+			solved = false;
+		}
+		out.flush();
+
+		// ONE ANSWER THAT CAN'T BE WRITTEN DOESN'T STOP THE OTHERS
+		File answer = new File(outDir, job.output);
+		try {
+			Files.write(answer.toPath(), buffer.toByteArray());
+		} catch (IOException e) {
+			System.err.println("Can't write " + answer + ": " + e.getMessage());
+			return false;
+		}
+		return solved;
+	}
+
+	private int city(String name) {
+		int id = network.getCity(name);
+		if(id == -1) {
+			throw new IllegalArgumentException("Unknown city " + name);
+		}
+		return id;
+	}
+
+	/**
+	 * Lists the requests in a directory or manifest. Manifest lines
+	 * are a file, relative to the manifest, and optionally a start
+	 * city. Blank lines and lines starting with # are skipped
+	 * @throws IllegalArgumentException if two manifest lines would
+	 * write the same answer file
+	 */
+	private List<Job> readJobs(File requests) throws IOException {
+		String start = FlightScheduler.option(options, "start", FlightScheduler.START_CITY);
+		ArrayList<Job> jobs = new ArrayList<Job>();
+
+		if(requests.isDirectory()) {
+			File[] files = requests.listFiles(file -> file.isFile() && !file.getName().startsWith("."));
+			Arrays.sort(files);
+			for(File file: files) {
+				jobs.add(new Job(file, start, file.getName() + ".out"));
+			}
+			return jobs;
+		}
+
+		HashMap<String, Integer> outputs = new HashMap<String, Integer>();
+		int lineNumber = 0;
+		for(String line: Files.readAllLines(requests.toPath(), StandardCharsets.UTF_8)) {
+			lineNumber++;
+			String[] tokens = line.trim().split("\\s+");
+			if(tokens[0].isEmpty() || tokens[0].startsWith("#")) {
+				continue;
+			}
+			if(tokens.length > 2) {
+				throw new IllegalArgumentException(requests + ":" + lineNumber + ": expected file and start city");
+			}
+			File file = new File(tokens[0]);
+			if(!file.isAbsolute()) {
+				file = new File(requests.getAbsoluteFile().getParentFile(), tokens[0]);
+			}
+			String output = tokens[0].replace('/', '_').replace('\\', '_')
+					+ (tokens.length == 2 ? "." + tokens[1] : "") + ".out";
+			Integer earlier = outputs.put(output, lineNumber);
+			if(earlier != null) {
+				throw new IllegalArgumentException(requests + ":" + lineNumber + ": answer " + output
+						+ " is already written for line " + earlier);
+			}
+			jobs.add(new Job(file, tokens.length == 2 ? tokens[1] : start, output));
+		}
+		return jobs;
+	}
+
+	/**
+	 * One request file, the city its route starts from and the
+	 * name of its answer file
+	 */
+	private static class Job {
+		private File file;
+		private String start;
+		private String output;
+		private long size;
+
+		Job(File requestFile, String startCity, String outputName) {
+			file = requestFile;
+			start = startCity;
+			output = outputName;
+			size = file.length();
+		}
+	}
+}
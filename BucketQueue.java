@@ -0,0 +1,165 @@
+/**
+ * Open list for the A* searches. Costs are whole minutes so instead of
+ * a heap ordered by comparisons nodes are kept in one bucket per
+ * f-cost. Adding is O(1) and polling only moves forwards through
+ * the buckets while f never decreases, which it doesn't for a
+ * consistent heuristic.
+ *
+ * Ties are broken last in first out. Children go in after their
+ * parent so among nodes of equal f the deepest, lowest h node is
+ * taken first, which finishes plateaus of equal f much sooner.
+ *
+ * Nodes are ints, such as NodeArena indexes, held in int arrays so
+ * adding one doesn't allocate once the buckets it goes in have grown
+ * big enough. StateQueue keeps States in one
+ */
+public class BucketQueue {
+	private int[][] buckets;
+	private int[] counts;
+	private int base;
+	private int lowest;
+	private int size;
+
+	public BucketQueue() {
+		buckets = new int[64][];
+		counts = new int[64];
+		base = -1;
+		lowest = 0;
+		size = 0;
+	}
+
+	/**
+	 * Checks if there are no nodes left
+	 * @return true if empty. false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gives number of nodes waiting
+	 * @return integer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a node to the bucket of its f-cost
+	 * @param integer node to add
+	 * @param integer f-cost of the node
+	 */
+	public void add(int toAdd, int f) {
+
+		if(base == -1) {
+			base = f;
+		} else if(f < base) {
+			rebase(f);
+		}
+		int index = f - base;
+		if(index >= buckets.length) {
+			grow(index + 1);
+		}
+
+		int[] bucket = buckets[index];
+		if(bucket == null) {
+			bucket = new int[8];
+			buckets[index] = bucket;
+		} else if(counts[index] == bucket.length) {
+			int[] bigger = new int[bucket.length * 2];
+			System.arraycopy(bucket, 0, bigger, 0, bucket.length);
+			bucket = bigger;
+			buckets[index] = bucket;
+		}
+		bucket[counts[index]++] = toAdd;
+		size++;
+
+		if(index < lowest) {
+			lowest = index;
+		}
+	}
+
+	/**
+	 * Removes a node of the lowest f-cost, the
+	 * most recently added one if there are several
+	 * @return integer node. -1 if empty
+	 */
+	public int poll() {
+		if(size == 0) {
+			return -1;
+		}
+		advance();
+		size--;
+		return buckets[lowest][--counts[lowest]];
+	}
+
+	/**
+	 * Moves to the first bucket holding nodes, letting go
+	 * of the empty buckets passed on the way
+	 */
+	private void advance() {
+		while(counts[lowest] == 0) {
+			buckets[lowest] = null;
+			lowest++;
+		}
+		if(lowest >= buckets.length / 2) {
+			slide();
+		}
+	}
+
+	/**
+	 * Moves the buckets in use down to the front once the front half
+	 * is empty, so the arrays span the f-costs waiting rather than
+	 * every f-cost since the search began. The buckets moved are
+	 * never more than the buckets passed to get here
+	 */
+	private void slide() {
+		int used = buckets.length;
+		while(used > lowest && buckets[used - 1] == null) {
+			used--;
+		}
+		System.arraycopy(buckets, lowest, buckets, 0, used - lowest);
+		System.arraycopy(counts, lowest, counts, 0, used - lowest);
+		for(int i = used - lowest; i < used; i++) {
+			buckets[i] = null;
+			counts[i] = 0;
+		}
+		base += lowest;
+		lowest = 0;
+	}
+
+	private void grow(int needed) {
+		int length = buckets.length;
+		while(length < needed) {
+			length *= 2;
+		}
+		int[][] moreBuckets = new int[length][];
+		int[] moreCounts = new int[length];
+		System.arraycopy(buckets, 0, moreBuckets, 0, buckets.length);
+		System.arraycopy(counts, 0, moreCounts, 0, counts.length);
+		buckets = moreBuckets;
+		counts = moreCounts;
+	}
+
+	/**
+	 * Moves every bucket up so a lower f-cost fits at the front.
+	 * Only needed when the heuristic isn't consistent
+	 * @param integer new lowest f-cost
+	 */
+	private void rebase(int f) {
+		int shift = base - f;
+		int used = buckets.length;
+		while(used > 0 && buckets[used - 1] == null) {
+			used--;
+		}
+		grow(used + shift);
+		System.arraycopy(buckets, 0, buckets, shift, used);
+		System.arraycopy(counts, 0, counts, shift, used);
+		for(int i = 0; i < shift; i++) {
+			buckets[i] = null;
+			counts[i] = 0;
+		}
+		base = f;
+		lowest += shift;
+	}
+}
\ No newline at end of file
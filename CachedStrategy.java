@@ -0,0 +1,102 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wraps another heuristic strategy and remembers its answers, so a
+ * state reached along many different paths is only evaluated once.
+ * Answers are keyed by the current city and the Coverage, which is
+ * everything the heuristics here look at. The cache holds a bounded
+ * number of entries and forgets the least recently used first
+ */
+public class CachedStrategy implements IStrategy{
+	private IStrategy strategy;
+	private LinkedHashMap<Key, Integer> cache;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param heuristic strategy to cache
+	 * @param integer most entries kept at once
+	 */
+	public CachedStrategy(IStrategy wrapped, final int capacity) {
+		strategy = wrapped;
+		hits = 0;
+		misses = 0;
+		cache = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Gives the cached heuristic, calculating it on a miss. The key
+	 * has to be an object to be kept, so for a NodeArena node, unlike
+	 * the strategies it wraps, this allocates on every lookup
+	 */
+	@Override
+	public int calcHCost(SearchNode child) {
+		Key key = new Key(child.getLocation(), child.getCoverage());
+		Integer found = cache.get(key);
+
+		if(found != null) {
+			hits++;
+			return found;
+		}
+		misses++;
+		int hCost = strategy.calcHCost(child);
+		cache.put(key, hCost);
+		return hCost;
+	}
+
+	/**
+	 * Gives number of lookups answered from the cache
+	 * @return long
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gives number of lookups passed on to the wrapped strategy
+	 * @return long
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gives number of entries currently cached
+	 * @return integer
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	private static class Key {
+		private int city;
+		private Coverage covered;
+
+		Key(int location, Coverage flown) {
+			city = location;
+			covered = flown;
+		}
+
+		@Override
+		public int hashCode() {
+			return city * 31 + covered.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return city == key.city && covered.equals(key.covered);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,302 @@
+import java.util.HashMap;
+
+/**
+ * Read only form of the Graph used by the searches. Cities are
+ * dense integer ids and the Flights leaving each city sit next to
+ * each other in primitive arrays (compressed sparse rows), so
+ * walking the neighbours of a city never touches a Node or Flight.
+ *
+ * Edge weights already include the delay at the destination, since
+ * every arrival except the very last one has to wait it out
+ */
+public class CompiledGraph {
+	private String[] names;
+	private int[] delays;
+	private HashMap<String, Integer> ids;
+
+	private int[] offsets;
+	private int[] sources;
+	private int[] targets;
+	private int[] flightTimes;
+	private int[] weights;
+
+	/**
+	 * Builds the adjacency arrays from a list of directed edges.
+	 * Edges keep their given order within each city
+	 * @param names of the cities, indexed by id
+	 * @param delays in minutes at each city, indexed by id
+	 * @param from city id of each edge
+	 * @param to city id of each edge
+	 * @param minutes of flight time of each edge
+	 */
+	public CompiledGraph(String[] cityNames, int[] cityDelays, int[] from, int[] to, int[] minutes) {
+		int numCities = cityNames.length;
+		int numEdges = from.length;
+
+		names = cityNames;
+		delays = cityDelays;
+		ids = new HashMap<String, Integer>(numCities * 2);
+		for(int i = 0; i < numCities; i++) {
+			ids.put(names[i], i);
+		}
+
+		offsets = new int[numCities + 1];
+		sources = new int[numEdges];
+		targets = new int[numEdges];
+		flightTimes = new int[numEdges];
+		weights = new int[numEdges];
+
+		// COUNTING SORT OF EDGES BY SOURCE CITY
+		for(int i = 0; i < numEdges; i++) {
+			offsets[from[i] + 1]++;
+		}
+		for(int i = 0; i < numCities; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] next = new int[numCities];
+		System.arraycopy(offsets, 0, next, 0, numCities);
+
+		for(int i = 0; i < numEdges; i++) {
+			int edge = next[from[i]]++;
+			sources[edge] = from[i];
+			targets[edge] = to[i];
+			flightTimes[edge] = minutes[i];
+			weights[edge] = minutes[i] + delays[to[i]];
+		}
+	}
+
+	private CompiledGraph() {
+	}
+
+	/**
+	 * Wraps adjacency arrays which are already in compressed sparse
+	 * rows, as a NetworkSnapshot stores them, so nothing is sorted
+	 * @param names of the cities, indexed by id
+	 * @param delays in minutes at each city, indexed by id
+	 * @param first edge of each city, plus the number of edges at the end
+	 * @param to city id of each edge
+	 * @param minutes of flight time of each edge
+	 * @return CompiledGraph using the arrays given
+	 */
+	public static CompiledGraph fromRows(String[] cityNames, int[] cityDelays, int[] rowStarts, int[] to,
+			int[] minutes) {
+		CompiledGraph built = new CompiledGraph();
+		int numCities = cityNames.length;
+		int numEdges = to.length;
+
+		built.names = cityNames;
+		built.delays = cityDelays;
+		built.ids = new HashMap<String, Integer>(numCities * 2);
+		for(int i = 0; i < numCities; i++) {
+			built.ids.put(cityNames[i], i);
+		}
+		built.offsets = rowStarts;
+		built.targets = to;
+		built.flightTimes = minutes;
+		built.sources = new int[numEdges];
+		built.weights = new int[numEdges];
+		for(int city = 0; city < numCities; city++) {
+			for(int edge = rowStarts[city]; edge < rowStarts[city + 1]; edge++) {
+				built.sources[edge] = city;
+				built.weights[edge] = minutes[edge] + cityDelays[to[edge]];
+			}
+		}
+		return built;
+	}
+
+	/**
+	 * Copy with its own delays and flight times, sharing
+	 * everything else since it never changes
+	 */
+	private CompiledGraph(CompiledGraph original) {
+		names = original.names;
+		ids = original.ids;
+		offsets = original.offsets;
+		sources = original.sources;
+		targets = original.targets;
+		delays = original.delays.clone();
+		flightTimes = original.flightTimes.clone();
+		weights = original.weights.clone();
+	}
+	
+	/**
+	 * Gives a copy of the network with a different delay at a city.
+	 * This network is left as it is
+	 * @param integer city id
+	 * @param integer new delay in minutes
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph withDelay(int city, int minutes) {
+		CompiledGraph changed = new CompiledGraph(this);
+		
+		changed.delays[city] = minutes;
+		for(int edge = 0; edge < weights.length; edge++) {
+			if(targets[edge] == city) {
+				changed.weights[edge] = flightTimes[edge] + minutes;
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Gives a copy of the network with a different flight time on
+	 * one edge. This network is left as it is
+	 * @param integer edge id
+	 * @param integer new flight time in minutes
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph withFlightTime(int edge, int minutes) {
+		CompiledGraph changed = new CompiledGraph(this);
+		
+		changed.flightTimes[edge] = minutes;
+		changed.weights[edge] = minutes + delays[targets[edge]];
+		return changed;
+	}
+	
+	/**
+	 * Gives number of cities
+	 * @return integer
+	 */
+	public int numCities() {
+		return names.length;
+	}
+
+	/**
+	 * Gives number of directed edges
+	 * @return integer
+	 */
+	public int numEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Gives the id of the named city
+	 * @param String name of city
+	 * @return integer id. -1 if the city doesn't exist
+	 */
+	public int getCity(String name) {
+		Integer id = ids.get(name);
+		if(id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Gives the name of a city
+	 * @param integer city id
+	 * @return String
+	 */
+	public String getName(int city) {
+		return names[city];
+	}
+
+	/**
+	 * Gives the delay time at a city
+	 * @param integer city id
+	 * @return integer minutes
+	 */
+	public int getDelay(int city) {
+		return delays[city];
+	}
+
+	/**
+	 * Gives the first edge leaving a city
+	 * @param integer city id
+	 * @return integer edge id
+	 */
+	public int edgeStart(int city) {
+		return offsets[city];
+	}
+
+	/**
+	 * Gives one past the last edge leaving a city
+	 * @param integer city id
+	 * @return integer edge id
+	 */
+	public int edgeEnd(int city) {
+		return offsets[city + 1];
+	}
+
+	/**
+	 * Gives the city an edge leaves from
+	 * @param integer edge id
+	 * @return integer city id
+	 */
+	public int getSource(int edge) {
+		return sources[edge];
+	}
+
+	/**
+	 * Gives the city an edge arrives at
+	 * @param integer edge id
+	 * @return integer city id
+	 */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Gives flight time of an edge
+	 * Doesn't include delay time
+	 * @param integer edge id
+	 * @return integer minutes
+	 */
+	public int getFlightTime(int edge) {
+		return flightTimes[edge];
+	}
+
+	/**
+	 * Gives cost of taking an edge, which is the flight time
+	 * plus the delay at the destination
+	 * @param integer edge id
+	 * @return integer minutes
+	 */
+	public int getWeight(int edge) {
+		return weights[edge];
+	}
+
+	/**
+	 * Gives the first edge from one city to another
+	 * @param integer city id of departure
+	 * @param integer city id of arrival
+	 * @return integer edge id. -1 if the cities aren't connected
+	 */
+	public int findEdge(int from, int to) {
+		for(int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+			if(targets[edge] == to) {
+				return edge;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives a 64 bit hash of everything a route's cost depends on:
+	 * the cities with their names and delays and every edge with its
+	 * flight time. Files built for one network keep it to check they
+	 * are only ever used with that network
+	 * @return long
+	 */
+	public long fingerprint() {
+		long h = 0xCBF29CE484222325L;
+
+		h = mix(h, names.length);
+		for(int city = 0; city < names.length; city++) {
+			h = mix(h, names[city].hashCode());
+			h = mix(h, delays[city]);
+		}
+		h = mix(h, sources.length);
+		for(int edge = 0; edge < sources.length; edge++) {
+			h = mix(h, sources[edge]);
+			h = mix(h, targets[edge]);
+			h = mix(h, flightTimes[edge]);
+		}
+		return h;
+	}
+
+	private static long mix(long h, int value) {
+		h = (h ^ value) * 0x100000001B3L;
+		return h ^ (h >>> 29);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Records which of the required flights a path has flown so far.
+ * Every required flight owns one bit, so a request asking for the
+ * same flight twice needs it flown twice. Coverages are never changed
+ * once built which lets states share them
+ */
+public class Coverage {
+	private long[] words;
+	private int numCovered;
+
+	/**
+	 * Creates an empty coverage for the given number of
+	 * required flights
+	 * @param integer number of required flights
+	 */
+	public Coverage(int numFlights) {
+		words = new long[(numFlights + 63) >>> 6];
+		numCovered = 0;
+	}
+
+	private Coverage(long[] bits, int count) {
+		words = bits;
+		numCovered = count;
+	}
+
+	/**
+	 * Checks if the required flight in the given slot
+	 * has been flown
+	 * @param integer slot of the required flight
+	 * @return true if covered. false otherwise
+	 */
+	public boolean isCovered(int slot) {
+		return (words[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Gives a copy of this coverage with one more slot covered
+	 * @precondition slot is not yet covered
+	 * @param integer slot of the required flight now flown
+	 * @return new Coverage
+	 */
+	public Coverage cover(int slot) {
+		long[] bits = words.clone();
+		bits[slot >>> 6] |= 1L << slot;
+		return new Coverage(bits, numCovered + 1);
+	}
+
+	/**
+	 * Gives number of required flights covered
+	 * @return integer
+	 */
+	public int numCovered() {
+		return numCovered;
+	}
+
+	/**
+	 * Gives number of 64 bit words in the key
+	 * @return integer
+	 */
+	public int numWords() {
+		return words.length;
+	}
+
+	/**
+	 * Gives one 64 bit word of the key
+	 * @param integer index of the word
+	 * @return long
+	 */
+	public long getWord(int index) {
+		return words[index];
+	}
+
+	/**
+	 * Gives the words of the key themselves, for tables which copy
+	 * or compare them. The array must not be changed
+	 * @return array of longs
+	 */
+	long[] getWords() {
+		return words;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof Coverage)) {
+			return false;
+		}
+		return Arrays.equals(words, ((Coverage) other).words);
+	}
+}
\ No newline at end of file
@@ -72,13 +72,7 @@ public class Flight {
 	 */
 	public boolean sameFlight (Flight path) {
 		
-		String departure = path.getFrom().getName();
-		String landing = path.getTo().getName();
-		
-		if(from.getName().equals(departure) && 
-		   to.getName().equals(landing)) {
-			return true;
-		}
-		return false;
+		return from.getId() == path.getFrom().getId() &&
+		       to.getId() == path.getTo().getId();
 	}
 }
\ No newline at end of file
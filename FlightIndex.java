@@ -0,0 +1,162 @@
+/**
+ * Gives every required flight its own slot in a Coverage.
+ * Repeated requests for the same flight get one slot each and
+ * are always filled in order so equal coverages have equal bits.
+ * Slots are looked up by edge id of the CompiledGraph
+ */
+public class FlightIndex {
+	private int[] from;
+	private int[] to;
+	private int[] minutes;
+	private int[] edges;
+	private int[][] slotsByEdge;
+
+	/**
+	 * @param CompiledGraph the flights are on
+	 * @param city ids each required flight departs
+	 * @param city ids each required flight arrives
+	 */
+	public FlightIndex(CompiledGraph network, int[] fromCities, int[] toCities) {
+		from = fromCities;
+		to = toCities;
+		minutes = new int[from.length];
+		edges = new int[from.length];
+		slotsByEdge = new int[network.numEdges()][];
+
+		for(int i = 0; i < from.length; i++) {
+			int best = -1;
+
+			// EVERY PARALLEL EDGE BETWEEN THE CITIES COVERS THE FLIGHT
+			for(int edge = network.edgeStart(from[i]); edge < network.edgeEnd(from[i]); edge++) {
+				if(network.getTarget(edge) == to[i]) {
+					slotsByEdge[edge] = append(slotsByEdge[edge], i);
+					if(best == -1 || network.getFlightTime(edge) < best) {
+						best = network.getFlightTime(edge);
+						edges[i] = edge;
+					}
+				}
+			}
+			if(best == -1) {
+				throw new IllegalArgumentException("No flight from " + network.getName(from[i])
+						+ " to " + network.getName(to[i]));
+			}
+			minutes[i] = best;
+		}
+	}
+
+	/**
+	 * Gives number of required flights
+	 * @return integer
+	 */
+	public int size() {
+		return from.length;
+	}
+
+	/**
+	 * Gives the city a required flight departs
+	 * @param integer slot
+	 * @return integer city id
+	 */
+	public int getFrom(int slot) {
+		return from[slot];
+	}
+
+	/**
+	 * Gives the city a required flight arrives
+	 * @param integer slot
+	 * @return integer city id
+	 */
+	public int getTo(int slot) {
+		return to[slot];
+	}
+
+	/**
+	 * Gives flight time of a required flight
+	 * Doesn't include delay time
+	 * @param integer slot
+	 * @return integer minutes
+	 */
+	public int getFlightTime(int slot) {
+		return minutes[slot];
+	}
+
+	/**
+	 * Gives the quickest edge which flies a required flight
+	 * @param integer slot
+	 * @return integer edge id
+	 */
+	public int getEdge(int slot) {
+		return edges[slot];
+	}
+
+	/**
+	 * Gives the slot a flown edge covers
+	 * @param coverage before the flight
+	 * @param integer edge id flown
+	 * @return integer slot. -1 if the edge isn't required or every
+	 * request for it has already been flown
+	 */
+	public int findSlot(Coverage covered, int edge) {
+		int[] found = slotsByEdge[edge];
+
+		if(found != null) {
+			for(int slot: found) {
+				if(!covered.isCovered(slot)) {
+					return slot;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the slot a flown edge covers from a node
+	 * @param NodeArena holding the node
+	 * @param integer node before the flight
+	 * @param integer edge id flown
+	 * @return integer slot. -1 if the edge isn't required or every
+	 * request for it has already been flown
+	 */
+	public int findSlot(NodeArena nodes, int node, int edge) {
+		int[] found = slotsByEdge[edge];
+
+		if(found != null) {
+			for(int slot: found) {
+				if(!nodes.isCovered(node, slot)) {
+					return slot;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the coverage after flying the given edge
+	 * If the flight isn't required or every request for it has
+	 * already been flown the coverage given is returned
+	 * @param coverage before the flight
+	 * @param integer edge id flown
+	 * @return Coverage after the flight
+	 */
+	public Coverage cover(Coverage covered, int edge) {
+		int slot = findSlot(covered, edge);
+
+		if(slot == -1) {
+			return covered;
+		}
+		return covered.cover(slot);
+	}
+
+	private static int[] append(int[] slots, int slot) {
+		int[] toAdd;
+
+		if(slots == null) {
+			toAdd = new int[1];
+		} else {
+			toAdd = new int[slots.length + 1];
+			System.arraycopy(slots, 0, toAdd, 0, slots.length);
+		}
+		toAdd[toAdd.length - 1] = slot;
+		return toAdd;
+	}
+}
\ No newline at end of file
@@ -1,9 +1,11 @@
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 /**
  * Analysis of Heuristic
@@ -56,50 +58,455 @@ import java.util.Scanner;
  *
  */
 public class FlightScheduler {
+	public static final String START_CITY = "Sydney";
+	
 	private LinkedList<Flight> requiredFlights;
 	private Graph map;
-	private int numExpansions;
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private Supplier<ShortestPaths> sharedPaths;
+	private PatternDatabase patterns;
+	private ResultCache results;
+	private int startCity = -1;
+	private SearchMetrics metrics;
 	
 	
 	public FlightScheduler (){
 		requiredFlights = new LinkedList<Flight>();
 		map = new Graph();
-		numExpansions = 0;
+		metrics = new SearchMetrics("astar", false);
+	}
+	
+	/**
+	 * Builds a scheduler for an already compiled network, 
+	 * sharing its tables with every other scheduler on it
+	 * @param CompiledGraph to search
+	 * @param ShortestPaths of the network
+	 */
+	public FlightScheduler(CompiledGraph compiled, ShortestPaths table) {
+		requiredFlights = new LinkedList<Flight>();
+		network = compiled;
+		paths = table;
+		metrics = new SearchMetrics("astar", false);
+	}
+	
+	/**
+	 * Builds a scheduler for an already compiled network whose 
+	 * shortest path table is only worked out if a search needs it
+	 * @param CompiledGraph to search
+	 * @param giver of the ShortestPaths of the network, shared by 
+	 * every scheduler on it
+	 */
+	public FlightScheduler(CompiledGraph compiled, Supplier<ShortestPaths> table) {
+		requiredFlights = new LinkedList<Flight>();
+		network = compiled;
+		sharedPaths = table;
+		metrics = new SearchMetrics("astar", false);
 	}
 	
-	public static void main(String[] args) {	
+	/**
+	 * Usage: java FlightScheduler inputFile [--engine=astar|order|dp|hda|ida|ara|lns] [--memory=MB]
+	 *        [--heuristic=A|B|R|P] [--pdb=file] [--cache=entries] [--threads=n]
+	 *        [--serve=stdin|port] [--parser=mapped|scanner] [--chunks=n]
+	 *        [--metrics=file|-] [--weight=w] [--step=s] [--budget=ms]
+	 *        [--arena=heap|offheap] [--results=entries] [--results-dir=dir]
+	 *        [--start=city] [--batch=dir|manifest] [--out=dir] [--batch-threads=n] [--seed=n]
+	 */
+	public static void main(String[] args) throws InterruptedException, IOException {	
 		FlightScheduler fs = new FlightScheduler();
 		
-		fs.readInputFile(args[0]);
+		try {
+			if(option(args, "parser", "mapped").equals("scanner")) {
+				fs.readInputFile(args[0]);
+				fs.compile();
+			} else {
+				fs.load(args[0], Integer.parseInt(option(args, "chunks", "1")));
+			}
+			String pdb = option(args, "pdb", null);
+			if(pdb != null) {
+				fs.usePatterns(PatternDatabase.load(pdb, fs.network));
+			}
+			String resultsDir = option(args, "results-dir", null);
+			int numResults = Integer.parseInt(option(args, "results", "0"));
+			if(numResults > 0 || resultsDir != null) {
+				fs.useResults(new ResultCache(fs.network, numResults, resultsDir));
+			}
+			fs.setStart(option(args, "start", START_CITY));
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Can't read input: " + e.getMessage());
+			System.exit(1);
+		}
 		//fs.showFlights();
-		if(fs.flightsNeeded()) {
-			IStrategy calcH = new HeuristicA(fs.getFlights());  // change Heuristic here
-			State goal = fs.aStarSearch(calcH);
-			
-			System.out.println(fs.getExp() + " nodes expanded");
-			System.out.println("cost = " + goal.getCostSoFar());
-			fs.showRoute(goal);
+		String serve = option(args, "serve", null);
+		String batch = option(args, "batch", null);
+		if(batch != null) {
+			BatchSolver solver = new BatchSolver(fs.network, fs::getPaths, args);
+			solver.usePatterns(fs.patterns);
+			solver.useResults(fs.results);
+			int failed = 0;
+			try {
+				failed = solver.solve(batch, option(args, "out", "batch-out"));
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println("Can't read batch: " + e.getMessage());
+				System.exit(1);
+			}
+			fs.showResultStats();
+			if(failed > 0) {
+				System.exit(1);
+			}
+		} else if(serve != null) {
+			SchedulerServer server = new SchedulerServer(fs.network, fs::getPaths, args);
+			server.usePatterns(fs.patterns);
+			server.useResults(fs.results);
+			if(serve.equals("stdin")) {
+				server.serve(System.in, System.out);
+				server.shutdown();
+				fs.showResultStats();
+			} else {
+				server.listen(Integer.parseInt(serve));
+			}
+		} else if(fs.flightsNeeded()) {
+			SearchMetrics solved = null;
+			try {
+				solved = fs.solve(args, System.out);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Can't solve: " + e.getMessage());
+				System.exit(1);
+			}
+			// ONLY A SINGLE RUN REPORTS ON STDERR, NOT EVERY REQUEST SERVED
+			if(solved.getCacheHits() >= 0) {
+				System.err.println("heuristic cache: " + solved.getCacheHits() + " hits, " 
+						+ solved.getCacheMisses() + " misses");
+			}
+			fs.showResultStats();
+			String dump = option(args, "metrics", null);
+			if(dump != null) {
+				writeMetrics(solved, dump);
+			}
 			//fs.showFlights();
 		}
 	}
 	
 	/**
-	 * Access to the list of flights required
-	 * @return Linked List of Flights
+	 * Reads the network and required flights with the memory
+	 * mapped NetworkParser, skipping the Graph object model.
+	 * A NetworkSnapshot is recognised and read as one instead
+	 * @param String filename
+	 * @param integer number of chunks to read in parallel
+	 */
+	public void load(String filename, int chunks) throws IOException {
+		if(NetworkSnapshot.isSnapshot(filename)) {
+			NetworkSnapshot snapshot = new NetworkSnapshot(filename);
+			snapshot.read();
+			network = snapshot.getNetwork();
+			required = new FlightIndex(network, snapshot.getRequiredFrom(), snapshot.getRequiredTo());
+			return;
+		}
+		NetworkParser parser = new NetworkParser(filename);
+		
+		parser.parse(chunks);
+		network = parser.getNetwork();
+		required = new FlightIndex(network, parser.getRequiredFrom(), parser.getRequiredTo());
+	}
+	
+	/**
+	 * Sets the flights required, replacing any read in
+	 * @param city ids each required flight departs
+	 * @param city ids each required flight arrives
+	 */
+	public void require(int[] from, int[] to) {
+		required = new FlightIndex(network, from, to);
+	}
+	
+	/**
+	 * Sets the city routes start from, Sydney unless set
+	 * @param String name of city
+	 */
+	public void setStart(String name) {
+		int city = network.getCity(name);
+		if(city == -1) {
+			throw new IllegalArgumentException("Unknown start city " + name);
+		}
+		startCity = city;
+	}
+	
+	/**
+	 * Answers requests solved before from a ResultCache, and
+	 * remembers the routes of the others
+	 * @param ResultCache for the network
+	 */
+	public void useResults(ResultCache cache) {
+		results = cache;
+	}
+	
+	/**
+	 * Uses tables read from a PatternDatabase for heuristic P,
+	 * and its shortest path table for everything else
+	 * @param PatternDatabase built for the network
+	 */
+	public void usePatterns(PatternDatabase database) {
+		patterns = database;
+		paths = database.getPaths();
+	}
+	
+	/**
+	 * Runs the search engine chosen on the command line and
+	 * prints what it found
+	 * @param command line arguments
+	 * @param where to print
+	 * @return SearchMetrics of the search. Split by operation if
+	 * the metrics option was given
+	 */
+	public SearchMetrics solve(final String[] args, PrintStream out) throws InterruptedException {
+		String engine = option(args, "engine", "astar");
+		int start = startCity == -1 ? network.getCity(START_CITY) : startCity;
+		SearchEvent event = new SearchEvent();
+		long started = System.nanoTime();
+		State goal;
+		
+		// A REQUEST SOLVED BEFORE IS ANSWERED WITHOUT SEARCHING
+		ResultCache.Key key = null;
+		if(results != null && isExact(engine, args)) {
+			key = results.key(start, required);
+			goal = results.get(key, route -> fromCache(route, start));
+			if(goal != null) {
+				metrics = new SearchMetrics(engine, false);
+				metrics.setTotalNanos(System.nanoTime() - started);
+				metrics.setCost(goal.getCostSoFar());
+				out.println("0 nodes expanded, route from the result cache");
+				out.println("cost = " + goal.getCostSoFar());
+				showRoute(goal, out);
+				return metrics;
+			}
+		}
+		
+		event.begin();
+		// ONLY A* IS SPLIT BY OPERATION
+		metrics = new SearchMetrics(engine, engine.equals("astar") && option(args, "metrics", null) != null);
+		if(engine.equals("dp")) {
+			HeldKarpSearch dp = new HeldKarpSearch(network, required, getPaths());
+			goal = dp.search(start);
+			metrics.setGenerated(dp.getNumStates());
+			metrics.setExpanded(dp.getNumStates());
+			out.println(dp.getNumStates() + " states evaluated");
+			
+		} else if(engine.equals("hda")) {
+			int threads = Integer.parseInt(option(args, "threads", 
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			ParallelSearch hda = new ParallelSearch(network, required, () -> makeHeuristic(args), threads);
+			goal = hda.search(start);
+			metrics.setExpanded(hda.getNumExpansions());
+			out.println(hda.getNumExpansions() + " nodes expanded");
+			
+		} else if(engine.equals("ida")) {
+			long tableBytes = Long.parseLong(option(args, "memory", "64")) << 20;
+			IterativeDeepeningSearch ida = new IterativeDeepeningSearch(network, required, makeHeuristic(args), 
+					tableBytes, metrics);
+			goal = ida.search(start);
+			out.println(metrics.getExpanded() + " nodes expanded");
+			
+		} else if(engine.equals("ara")) {
+			AnytimeSearch ara = new AnytimeSearch(network, required, makeHeuristic(args), metrics, 
+					(found, bound, millis) -> {
+						out.println(String.format(Locale.ROOT, "improved cost = %d bound = %.3f after %d ms", 
+								found.getCostSoFar(), bound, millis));
+						showRoute(found, out);
+						out.flush();
+					});
+			goal = ara.search(start, Double.parseDouble(option(args, "weight", "3")), 
+					Double.parseDouble(option(args, "step", "0.5")), Long.parseLong(option(args, "budget", "0")));
+			out.println(metrics.getExpanded() + " nodes expanded");
+			
+		} else if(engine.equals("lns")) {
+			int threads = Integer.parseInt(option(args, "threads", 
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			LocalSearch lns = new LocalSearch(network, required, getPaths(), threads);
+			goal = lns.search(start, Long.parseLong(option(args, "budget", "1000")), 
+					Long.parseLong(option(args, "seed", "1")));
+			metrics.setGenerated(lns.getNumMoves());
+			metrics.setExpanded(lns.getNumRounds());
+			out.println(lns.getNumMoves() + " moves costed in " + lns.getNumRounds() + " rounds");
+			
+		} else if(engine.equals("order")) {
+			OrderSearch order = new OrderSearch(network, required, getPaths(), makeHeuristic(args), metrics);
+			goal = order.search(start, option(args, "arena", "heap").equals("offheap"));
+			out.println(metrics.getExpanded() + " nodes expanded");
+			
+		} else if(engine.equals("astar")) {
+			IStrategy calcH = makeHeuristic(args);
+			goal = aStarSearch(calcH, start, option(args, "arena", "heap").equals("offheap"));
+			out.println(getExp() + " nodes expanded");
+			
+			if(calcH instanceof CachedStrategy) {
+				CachedStrategy cached = (CachedStrategy) calcH;
+				metrics.setHeuristicCache(cached.getHits(), cached.getMisses());
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown engine " + engine);
+		}
+		
+		if(key != null && goal != null) {
+			results.put(key, goal.getPathSoFar());
+		}
+		metrics.setTotalNanos(System.nanoTime() - started);
+		if(goal != null) {
+			metrics.setCost(goal.getCostSoFar());
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.fill(metrics, required.size());
+			event.commit();
+		}
+		
+		// A REQUIRED FLIGHT CAN'T BE REACHED FROM THE START
+		if(goal == null) {
+			out.println("no route covers every required flight");
+			return metrics;
+		}
+		out.println("cost = " + goal.getCostSoFar());
+		showRoute(goal, out);
+		return metrics;
+	}
+	
+	/**
+	 * Checks the engine always finds the optimal route with the
+	 * options given, so its routes can be cached
+	 */
+	private static boolean isExact(String engine, String[] args) {
+		if(engine.equals("lns")) {
+			return false;
+		}
+		return !engine.equals("ara") || Long.parseLong(option(args, "budget", "0")) == 0;
+	}
+	
+	/**
+	 * Rebuilds a cached route, checking it is a connected route
+	 * from the start which covers every required flight
+	 * @param array of edge ids
+	 * @param integer city id the route must start from
+	 * @return the Goal State. null if the route can't be used
+	 */
+	private State fromCache(int[] route, int start) {
+		int city = start;
+		for(int edge: route) {
+			if(edge < 0 || edge >= network.numEdges() || network.getSource(edge) != city) {
+				return null;
+			}
+			city = network.getTarget(edge);
+		}
+		State goal = State.buildRoute(network, required, start, route);
+		if(goal.numFlightsCovered() != required.size()) {
+			return null;
+		}
+		return goal;
+	}
+	
+	/**
+	 * Writes metrics as JSON
+	 * @param SearchMetrics
+	 * @param String filename, or - for standard error
+	 */
+	private static void writeMetrics(SearchMetrics solved, String filename) throws IOException {
+		if(filename.equals("-")) {
+			System.err.println(solved.toJson());
+			return;
+		}
+		try (PrintStream file = new PrintStream(filename)) {
+			file.println(solved.toJson());
+		}
+	}
+	
+	/**
+	 * Prints how the result cache has done, if there is one
+	 */
+	private void showResultStats() {
+		if(results != null) {
+			System.err.println(String.format(Locale.ROOT, 
+					"result cache: %d hits (%d from disk), %d misses, hit ratio %.3f, %.1f us per hit, %.1f us per miss", 
+					results.getHits(), results.getDiskHits(), results.getMisses(), results.getHitRatio(), 
+					results.getHitMicros(), results.getMissMicros()));
+		}
+	}
+	
+	/**
+	 * Builds the heuristic asked for on the command line,
+	 * cached if a cache size was given
+	 * @param command line arguments
+	 * @return IStrategy
 	 */
-	private LinkedList<Flight>getFlights() {
-		return requiredFlights;
+	private IStrategy makeHeuristic(String[] args) {
+		IStrategy calcH = chooseHeuristic(option(args, "heuristic", "A"));
+		int cacheSize = Integer.parseInt(option(args, "cache", "0"));
+		
+		if(cacheSize > 0) {
+			calcH = new CachedStrategy(calcH, cacheSize);
+		}
+		return calcH;
+	}
+	
+	/**
+	 * Gives the shortest path table of the network, 
+	 * working it out the first time it is needed
+	 * @return ShortestPaths
+	 */
+	private synchronized ShortestPaths getPaths() {
+		if(paths == null && sharedPaths != null) {
+			paths = sharedPaths.get();
+		} else if(paths == null) {
+			paths = new ShortestPaths(network);
+		}
+		return paths;
+	}
+	
+	/**
+	 * Gives the value of a "--name=value" command line option
+	 * @param command line arguments
+	 * @param String name of the option
+	 * @param String value to use if the option isn't given
+	 * @return String value of the option
+	 */
+	public static String option(String[] args, String name, String fallback) {
+		String prefix = "--" + name + "=";
+		for(int i = 1; i < args.length; i++) {
+			if(args[i].startsWith(prefix)) {
+				return args[i].substring(prefix.length());
+			}
+		}
+		return fallback;
+	}
+	
+	/**
+	 * Builds the heuristic strategy of the given name
+	 * @param String name, A, B or P
+	 * @return IStrategy
+	 */
+	private IStrategy chooseHeuristic(String name) {
+		if(name.equals("A")) {
+			return new HeuristicA(network, required);
+		} else if(name.equals("B")) {
+			return new HeuristicB(network, required, getPaths());
+		} else if(name.equals("R")) {
+			return new PostmanHeuristic(network, required, getPaths());
+		} else if(name.equals("P")) {
+			if(patterns == null) {
+				throw new IllegalArgumentException("Heuristic P needs --pdb=file");
+			}
+			return new PatternHeuristic(network, required, patterns);
+		}
+		throw new IllegalArgumentException("Unknown heuristic " + name);
 	}
 	
 	/**
 	 * Prints the goal state found in correct format
 	 * @param optimum goal state 
+	 * @param where to print
 	 */
-	private void showRoute(State goal) {
-		LinkedList<Flight> route = goal.getPathSoFar();
-		for(Flight edge: route) {
-			System.out.print("Flight " + edge.getFrom().getName() + " to ");
-			System.out.println(edge.getTo().getName());
+	private void showRoute(State goal, PrintStream out) {
+		int[] route = goal.getPathSoFar();
+		for(int edge: route) {
+			out.print("Flight " + network.getName(network.getSource(edge)) + " to ");
+			out.println(network.getName(network.getTarget(edge)));
 		}
 	}
 	
@@ -121,8 +528,8 @@ public class FlightScheduler {
 	 * @return true if flights have been requested. false 
 	 * otherwise
 	 */
-	private boolean flightsNeeded() {
-		return !requiredFlights.isEmpty();
+	public boolean flightsNeeded() {
+		return required.size() > 0;
 	}
 	
 	/**
@@ -130,7 +537,7 @@ public class FlightScheduler {
 	 * Acts accordingly
 	 * @param String filename
 	 */
-	private void readInputFile(String filename) {
+	private void readInputFile(String filename) throws FileNotFoundException {
 		
 		Scanner sc = null;
 		
@@ -150,14 +557,14 @@ public class FlightScheduler {
 				if(firstToken.equals("City")) {
 					name1 = sc.next();
 					time = sc.next();
-					minutes = Integer.parseInt(time);
+					minutes = nonNegative(time);
 					buildGraph(name1, minutes);
 					
 				} else if (firstToken.equals("Time")) {
 					name1 = sc.next();
 					name2 = sc.next();
 					time = sc.next();
-					minutes = Integer.parseInt(time);
+					minutes = nonNegative(time);
 					connectCity(name1,name2,minutes);
 					
 				} else if (firstToken.equals("Flight")) {
@@ -167,7 +574,6 @@ public class FlightScheduler {
 				} 	
 			}
 		}
-		catch (FileNotFoundException e) {}
 	    finally
 	    {
 	        if (sc != null) sc.close();
@@ -175,6 +581,35 @@ public class FlightScheduler {
 	}
 	
 	
+	/**
+	 * Reads minutes for the scanner, refusing negative ones
+	 */
+	private static int nonNegative(String time) {
+		int minutes = Integer.parseInt(time);
+		if(minutes < 0) {
+			throw new IllegalArgumentException("Expected minutes of 0 or more but got " + time);
+		}
+		return minutes;
+	}
+	
+	/**
+	 * Compiles the graph read in and indexes the required 
+	 * flights on it, ready for searching
+	 */
+	private void compile() {
+		int[] from = new int[requiredFlights.size()];
+		int[] to = new int[requiredFlights.size()];
+		int i = 0;
+		
+		network = map.compile();
+		for(Flight flight: requiredFlights) {
+			from[i] = flight.getFrom().getId();
+			to[i] = flight.getTo().getId();
+			i++;
+		}
+		required = new FlightIndex(network, from, to);
+	}
+	
 	/**
 	 * Appends the corresponding Flight edge to the list of 
 	 * required flights
@@ -212,147 +647,164 @@ public class FlightScheduler {
 	 * A* search
 	 * 
 	 * Finds the optimal path which contains all
-	 * the flights requested in the required Flights list
+	 * the flights requested in the required Flights list.
+	 * The cheapest cost each state has been generated at is kept, so
+	 * a child no cheaper than one already generated is thrown away and
+	 * nodes left in the queue after a cheaper copy was added are
+	 * skipped when they come out. A state reached more cheaply after
+	 * it was expanded is expanded again, so the route stays optimal
+	 * even when the heuristic isn't consistent.
+	 * 
+	 * Nodes live in a NodeArena rather than as States, so expanding
+	 * allocates nothing per child unless a table has to grow
 	 * @precondition be given valid Flights. 
 	 * @param a heuristic strategy
-	 * @return the Goal State
+	 * @param integer city id to start from
+	 * @param true to keep the nodes off the heap
+	 * @return the Goal State. null if no route exists
 	 */
-	private State aStarSearch(IStrategy calcH) {
-		numExpansions = 0;
-		
+	private State aStarSearch(IStrategy calcH, int start, boolean offHeap) {
 		int hCost = 0; 
+		long timer;
 		int oldH = 0;
 		
-		LinkedList<Flight> childList, pathToAdd;
+		int city, child, slot, current, temp;
 		int costToAdd = 0;
-		Node child;
-		LinkedList<State> visited = new LinkedList<State>();
-		State initial = buildState("Sydney", null, costToAdd, 0);
-		State current = initial, temp;
-		Queue<State> toVisit = new PriorityQueue<State>();
-		toVisit.add(initial);
+		// COST DOUBLED, PLUS ONE ONCE THE STATE HAS EVER BEEN EXPANDED
+		StateTable bestG = new StateTable(required.size());
+		int numClosed = 0;
+		NodeArena nodes = new NodeArena(required.size(), offHeap);
+		long[] key = new long[nodes.numWords()];
+		int initial = nodes.addRoot(start, 0);
+		BucketQueue toVisit = new BucketQueue();
+		nodes.setHeur(initial, calcH.calcHCost(nodes.view(initial)));
+		metrics.startCounting(true);
+		metrics.setRootH(nodes.getHeur(initial));
+		nodes.copyKey(initial, key);
+		bestG.put(start, key, 0);
+		toVisit.add(initial, nodes.getF(initial));
 		
 		// BEGIN SEARCH
-		while(!isGoalState(current)) {	
+		while(!toVisit.isEmpty()) {	
+			timer = metrics.start();
 			current = toVisit.poll();
-			visited.add(current);
-			numExpansions++;
+			metrics.timeQueue(timer);
 			
-			childList = current.childEdges(); 
-			oldH = current.getHeur();
+			// A CHEAPER COPY WAS ADDED AFTER THIS ONE
+			timer = metrics.start();
+			city = nodes.getCity(current);
+			nodes.copyKey(current, key);
+			int seen = bestG.get(city, key);
+			if(nodes.getCost(current) > seen / 2) {
+				metrics.timeDuplicates(timer);
+				metrics.countPruned();
+				continue;
+			}
+			metrics.timeDuplicates(timer);
 			
-			for(Flight path: childList) {
-					
-					child = path.getTo();
-					pathToAdd = current.getPathSoFar();  
+			if(goalTest(nodes, current)) {
+				return State.buildRoute(network, required, start, nodes.getPath(current));
+			}
+			// A STATE EXPANDED AGAIN IS ONLY CLOSED ONCE
+			if(seen % 2 == 0) {
+				numClosed++;
+			} else {
+				metrics.countReopened();
+			}
+			bestG.put(city, key, nodes.getCost(current) * 2 + 1);
+			metrics.seenClosed(numClosed);
+			metrics.countExpanded();
+			
+			oldH = nodes.getHeur(current);
+			
+			for(int edge = network.edgeStart(city); edge < network.edgeEnd(city); edge++) {
 					
-					if(pathToAdd==null) {
-						pathToAdd = new LinkedList<Flight>();
-					} 
+					child = network.getTarget(edge);
 					
 					// ADDS EDGE [PARENT->CHILD]
-					pathToAdd.add(path);
-					costToAdd = current.getCostSoFar() + path.getFlightTime(); 
+					costToAdd = nodes.getCost(current) + network.getWeight(edge); 
+					slot = required.findSlot(nodes, current, edge);
+					
+					// NO DELAY AFTER LANDING THE LAST FLIGHT
+					if(slot != -1 && nodes.numCovered(current) + 1 == required.size()) {
+						costToAdd -= network.getDelay(child);
+					}
+					metrics.countGenerated();
+					
+					// ONLY KEPT IF IT IS THE CHEAPEST WAY TO THE STATE YET
+					timer = metrics.start();
+					flip(key, slot);
+					seen = bestG.get(child, key);
+					boolean cheaper = seen == -1 || costToAdd < seen / 2;
+					if(cheaper) {
+						bestG.put(child, key, costToAdd * 2 + (seen == -1 ? 0 : seen % 2));
+					}
+					flip(key, slot);
+					metrics.timeDuplicates(timer);
+					if(!cheaper) {
+						metrics.countPruned();
+						continue;
+					}
 					
-					temp = new State(child, pathToAdd, costToAdd, oldH);
+					temp = nodes.addChild(current, edge, child, costToAdd, oldH, slot);
+					timer = metrics.start();
+					hCost = calcH.calcHCost(nodes.view(temp));
+					metrics.timeHeuristic(timer);
 					
-					//ASSUMING EARLIER PATH WILL ALWAYS BE CHEAPER
-					if(!visited(visited, temp)) {	
-						hCost = calcH.calcHCost(temp);
-						
-						temp.updateH(hCost);
-						//temp.showState();
-						//System.out.println();
-						
-						if(!isGoalState(temp)) {
-							
-							temp.addDelayTime(path.destinationDelay());	
-						}
-						
-						toVisit.add(temp);
-					} 
+					// NO ROUTE FROM HERE COVERS THE FLIGHTS LEFT
+					if(hCost >= ShortestPaths.UNREACHABLE) {
+						metrics.countPruned();
+						continue;
+					}
+					nodes.setHeur(temp, hCost);
+					
+					timer = metrics.start();
+					toVisit.add(temp, nodes.getF(temp));
+					metrics.timeQueue(timer);
+					metrics.seenOpen(toVisit.size());
 			}
 			
 		}
-	
-		return current; 
+		return null;
 	}
 	
 	/**
-	 * Checks if the polled State is the goal State
-	 * @param State to be checked
-	 * @return true if it covers all necessary flights. false otherwise
+	 * Flips the bit of a slot in a coverage key
+	 * @param array of coverage words
+	 * @param integer slot. Nothing is flipped for -1
 	 */
-	private boolean isGoalState (State toCheck) {
-		int numFlights = requiredFlights.size();
-	
-		if(toCheck.numFlightsCovered(requiredFlights) == numFlights) {
-			return true;
-		} 
-		return false;
+	private static void flip(long[] key, int slot) {
+		if(slot != -1) {
+			key[slot >>> 6] ^= 1L << slot;
+		}
 	}
 	
 	/**
-	 * Creates a state from information given
-	 * @param cityName
-	 * @param path
-	 * @param gCost
-	 * @param hCost
-	 * @return State off given information and the current city
+	 * Checks if the polled node is a goal
+	 * @param NodeArena holding it
+	 * @param integer node to be checked
+	 * @return true if it covers all necessary flights. false otherwise
 	 */
-	private State buildState(String cityName, LinkedList<Flight>path, int gCost, int hCost) {
-		return map.createState(cityName, path, gCost, hCost);	
+	private boolean isGoalState (NodeArena nodes, int toCheck) {
+		return nodes.numCovered(toCheck) == required.size();
 	}
 	
 	/**
-	 * Gives number of nodes expanded in most recent A*search
-	 * @return integer number of expanded nodes
+	 * Goal test, timed for the metrics
 	 */
-	private int getExp() {
-		return numExpansions;
+	private boolean goalTest(NodeArena nodes, int toCheck) {
+		long timer = metrics.start();
+		boolean goal = isGoalState(nodes, toCheck);
+		metrics.timeGoalTest(timer);
+		return goal;
 	}
 	
 	/**
-	 * Loops through the visited list and checks if the state to be checked
-	 * is the sameState as any of the states already visited
-	 * @param visited, a list of states already visited
-	 * @param toCheck, a state possibly to be added to the queue
-	 * @return true if the state already exists, false otherwise
-	 */
-	private boolean visited(LinkedList<State> visited, State toCheck) {
-		for(State curr: visited) {
-			if(sameState(curr, toCheck)) {		
-				return true;
-			}
-		}
-		return false;
-	}
-	
-	/**
-	 * Checks if two states are equivalent states. States are the same
-	 * if they cover the same required flights and the current 
-	 * locations are the same
-	 * @param visitedState, a state that has already been expanded
-	 * @param toCheckState, a state which needs to be compared
-	 * @return true if they are the same state, false otherwise
+	 * Gives number of nodes expanded in most recent A*search
+	 * @return integer number of expanded nodes
 	 */
-	private boolean sameState(State visitedState, State toCheckState) {
-		boolean same = false;
-		String name1 = visitedState.getLocation().getName();
-		String name2 = toCheckState.getLocation().getName();
-		if(name1.equals(name2)) {
-			LinkedList<Flight> toCheckCovered = toCheckState.coveredFlights(requiredFlights);
-			LinkedList<Flight> visitedCovered = visitedState.coveredFlights(requiredFlights);
-			
-			if(visitedCovered != null && toCheckCovered != null) {
-				
-				if(toCheckCovered.containsAll(visitedCovered) && visitedCovered.containsAll(toCheckCovered)) {
-					same = true;
-				}
-				
-			}
-		}
-		return same;
+	public int getExp() {
+		return (int) metrics.getExpanded();
 	}
 }
 
@@ -1,11 +1,14 @@
+import java.util.HashMap;
 import java.util.LinkedList;
 
 public class Graph {
 	private LinkedList<Node> cityList;
+	private HashMap<String, Node> cityIndex;
 	
 	// CONSTRUCTOR
 	public Graph() {
 		cityList = new LinkedList<Node>();
+		cityIndex = new HashMap<String, Node>();
 	}
 	
 	/**
@@ -13,7 +16,9 @@ public class Graph {
 	 * @param city Node to be added
 	 */
 	public void addCity(Node city) {
+		city.setId(cityList.size());
 		cityList.add(city);
+		cityIndex.put(city.getName(), city);
 	}
 	
 	/**
@@ -63,27 +68,53 @@ public class Graph {
 	 * @return Node. Gives null if the node wasn't found in graph
 	 */
 	private Node getCity(String name) {
-		Node city = null;
-		for(Node current: cityList) {
-			if(current.getName().equals(name)) {
-				city = current;
-			}
-		}
-		return city;
+		return cityIndex.get(name);
 	}
 	
 	/**
-	 * Builds a new state 
-	 * @param name of current city 
-	 * @param Linked List of flights so far
-	 * @param gCost: the flight cost so far
-	 * @param hCost: the heuristic cost
-	 * @return State based off parameter information
+	 * Gives number of cities in the graph
+	 * @return integer
 	 */
-	public State createState(String name, LinkedList<Flight> path, int gCost, int hCost) {
-		Node city = getCity(name);
-		State cityState = new State(city, path, gCost, hCost);
-		return cityState;
+	public int numCities() {
+		return cityList.size();
+	}
+	
+	/**
+	 * Compiles the graph into the array form the searches run on.
+	 * City ids are kept so Node.getId() is valid in the result
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph compile() {
+		int numCities = cityList.size();
+		int numEdges = 0;
+		String[] names = new String[numCities];
+		int[] delays = new int[numCities];
+		
+		for(Node current: cityList) {
+			names[current.getId()] = current.getName();
+			delays[current.getId()] = current.getDelay();
+			if(current.getChildren() != null) {
+				numEdges += current.getChildren().size();
+			}
+		}
+		
+		int[] from = new int[numEdges];
+		int[] to = new int[numEdges];
+		int[] minutes = new int[numEdges];
+		int i = 0;
+		
+		for(Node current: cityList) {
+			if(current.getChildren() == null) {
+				continue;
+			}
+			for(Flight path: current.getChildren()) {
+				from[i] = path.getFrom().getId();
+				to[i] = path.getTo().getId();
+				minutes[i] = path.getFlightTime();
+				i++;
+			}
+		}
+		return new CompiledGraph(names, delays, from, to, minutes);
 	}
 	
 	// used for testing
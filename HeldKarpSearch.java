@@ -0,0 +1,274 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact solver which, instead of searching city by city, works out
+ * the best order to fly the required flights in. Between two
+ * required flights the route always takes a cheapest path, so the
+ * cost of a schedule only depends on which flights are done and
+ * which one was done last.
+ *
+ * best[set][last] holds the cheapest way of flying every flight in
+ * the set, finishing with last, and is filled in one layer of set
+ * size at a time. Every set in a layer only needs the layer before
+ * so the sets are shared out over a fork/join pool.
+ *
+ * Runtime and memory are about 2^n * n for n required flights no
+ * matter how the flights are laid out, so it suits requests of up
+ * to about 20 flights. The sets of each size are walked in order with
+ * Gosper's hack rather than by testing every set, and a request whose
+ * table wouldn't fit in the heap left is refused before it is made
+ */
+public class HeldKarpSearch {
+	public static final int MAX_FLIGHTS = 24;
+	private static final int INFINITY = Integer.MAX_VALUE;
+	private static final int SETS_PER_TASK = 1 << 10;
+	// SETS OF EACH SIZE OUT OF EACH NUMBER OF FLIGHTS
+	private static final long[][] CHOOSE = choose(MAX_FLIGHTS);
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private int numFlights;
+	private int[] best;
+	private int[] legs;
+	private long numStates;
+
+	public HeldKarpSearch(CompiledGraph map, FlightIndex flights, ShortestPaths table) {
+		network = map;
+		required = flights;
+		paths = table;
+		numFlights = required.size();
+
+		if(numFlights > MAX_FLIGHTS) {
+			throw new IllegalArgumentException(numFlights + " flights is too many for the dp engine, the most is "
+					+ MAX_FLIGHTS);
+		}
+	}
+
+	/**
+	 * Finds the optimal route from the given city which contains all
+	 * the flights requested
+	 * @precondition at least one flight is required
+	 * @param integer city id to start from
+	 * @return the Goal State. null if no route exists
+	 */
+	public State search(int start) {
+		int numSets = 1 << numFlights;
+		long tableBytes = 4L * numSets * numFlights;
+		Runtime runtime = Runtime.getRuntime();
+		long heapLeft = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		if(tableBytes > heapLeft) {
+			throw new IllegalArgumentException(numFlights + " flights need " + (tableBytes >> 20) 
+					+ " MB for the dp engine but only " + (heapLeft >> 20) + " MB of heap is left");
+		}
+		best = new int[numSets * numFlights];
+		Arrays.fill(best, INFINITY);
+		calcLegs();
+
+		// SETS OF ONE FLIGHT COME STRAIGHT FROM THE START
+		for(int last = 0; last < numFlights; last++) {
+			int toStart = paths.getCost(start, required.getFrom(last));
+			if(toStart < ShortestPaths.UNREACHABLE) {
+				best[(1 << last) * numFlights + last] = toStart + flightCost(last);
+			}
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		for(int size = 2; size <= numFlights; size++) {
+			pool.invoke(new Layer(size, 0, CHOOSE[numFlights][size]));
+		}
+		numStates = (long) numSets * numFlights;
+
+		// THE FINAL FLIGHT DOESN'T WAIT OUT THE DELAY
+		int full = numSets - 1;
+		int last = -1;
+		long cost = INFINITY;
+		for(int i = 0; i < numFlights; i++) {
+			int found = best[full * numFlights + i];
+			if(found != INFINITY && found - delay(i) < cost) {
+				cost = found - delay(i);
+				last = i;
+			}
+		}
+		if(last == -1) {
+			return null;
+		}
+		return State.buildRoute(network, required, start, buildRoute(start, last));
+	}
+
+	/**
+	 * Gives number of (set, last flight) entries in the table
+	 * filled in by the most recent search
+	 * @return long
+	 */
+	public long getNumStates() {
+		return numStates;
+	}
+
+	/**
+	 * Works out the cost of flying from the end of every required
+	 * flight to the start of every other and then flying it
+	 */
+	private void calcLegs() {
+		legs = new int[numFlights * numFlights];
+
+		for(int from = 0; from < numFlights; from++) {
+			for(int to = 0; to < numFlights; to++) {
+				int connect = paths.getCost(required.getTo(from), required.getFrom(to));
+				if(from == to || connect >= ShortestPaths.UNREACHABLE) {
+					legs[from * numFlights + to] = INFINITY;
+				} else {
+					legs[from * numFlights + to] = connect + flightCost(to);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cost of a required flight including the delay on landing
+	 * @param integer slot
+	 * @return integer minutes
+	 */
+	private int flightCost(int slot) {
+		return required.getFlightTime(slot) + delay(slot);
+	}
+
+	private int delay(int slot) {
+		return network.getDelay(required.getTo(slot));
+	}
+
+	/**
+	 * Walks back through the table from the final flight, each
+	 * step finding the flight before that gave the best cost,
+	 * then expands the legs in between into edges
+	 * @return array of edge ids, first flight first
+	 */
+	private int[] buildRoute(int start, int last) {
+		int[] order = new int[numFlights];
+		int set = (1 << numFlights) - 1;
+
+		for(int i = numFlights - 1; i > 0; i--) {
+			order[i] = last;
+			int cost = best[set * numFlights + last];
+			set &= ~(1 << last);
+
+			for(int before = 0; before < numFlights; before++) {
+				int leg = legs[before * numFlights + last];
+				int found = best[set * numFlights + before];
+				if((set & (1 << before)) != 0 && found != INFINITY && leg != INFINITY
+						&& found + leg == cost) {
+					last = before;
+					break;
+				}
+			}
+		}
+		order[0] = last;
+
+		int[] flights = new int[numFlights];
+		for(int i = 0; i < numFlights; i++) {
+			flights[i] = required.getEdge(order[i]);
+		}
+		return paths.expand(start, flights);
+	}
+
+	/**
+	 * Gives the number of ways of choosing each number of things
+	 * out of up to the given number
+	 * @return array indexed by out of and then chosen
+	 */
+	private static long[][] choose(int most) {
+		long[][] table = new long[most + 1][most + 2];
+		for(int n = 0; n <= most; n++) {
+			table[n][0] = 1;
+			for(int k = 1; k <= n; k++) {
+				table[n][k] = table[n - 1][k - 1] + table[n - 1][k];
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Gives the set of the given size which comes at a rank in
+	 * numeric order, the order Gosper's hack walks them in
+	 */
+	private static int unrank(long rank, int size) {
+		int set = 0;
+		for(int k = size; k > 0; k--) {
+			int bit = k - 1;
+			while(CHOOSE[bit + 1][k] <= rank) {
+				bit++;
+			}
+			set |= 1 << bit;
+			rank -= CHOOSE[bit][k];
+		}
+		return set;
+	}
+
+	/**
+	 * Gives the next larger set with as many flights
+	 */
+	private static int nextSet(int set) {
+		int lowest = set & -set;
+		int carried = set + lowest;
+		return carried | (((set ^ carried) >>> 2) / lowest);
+	}
+
+	/**
+	 * Fills in the sets of the given size with ranks within a range,
+	 * splitting the range in half until it is small enough
+	 */
+	private class Layer extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private int size;
+		private long low;
+		private long high;
+
+		Layer(int setSize, long lowRank, long highRank) {
+			size = setSize;
+			low = lowRank;
+			high = highRank;
+		}
+
+		@Override
+		protected void compute() {
+			if(high - low > SETS_PER_TASK) {
+				long middle = (low + high) >>> 1;
+				invokeAll(new Layer(size, low, middle), new Layer(size, middle, high));
+				return;
+			}
+			int set = unrank(low, size);
+			for(long rank = low; rank < high; rank++) {
+				fill(set);
+				if(rank + 1 < high) {
+					set = nextSet(set);
+				}
+			}
+		}
+
+		/**
+		 * best[set][last] is the cheapest of best[set - last][before]
+		 * plus the leg from before to last
+		 */
+		private void fill(int set) {
+			for(int last = 0; last < numFlights; last++) {
+				if((set & (1 << last)) == 0) {
+					continue;
+				}
+				int rest = (set & ~(1 << last)) * numFlights;
+				int cheapest = INFINITY;
+
+				for(int before = 0; before < numFlights; before++) {
+					int found = best[rest + before];
+					int leg = legs[before * numFlights + last];
+					if(found != INFINITY && leg != INFINITY && found + leg < cheapest) {
+						cheapest = found + leg;
+					}
+				}
+				best[set * numFlights + last] = cheapest;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -1,11 +1,9 @@
-import java.util.LinkedList;
-
 public class HeuristicA implements IStrategy{
 	private int minCost;
-	private LinkedList<Flight>minRoute;
+	private CompiledGraph network;
 	
-	public HeuristicA(LinkedList<Flight> required) {
-		minRoute = required;
+	public HeuristicA(CompiledGraph map, FlightIndex required) {
+		network = map;
 		minCost = 0;
 		calcMin(required);
 		
@@ -14,11 +12,11 @@ public class HeuristicA implements IStrategy{
 	/**
 	 * Gives the minimum possible flight time of the path
 	 * Doesn't include the delay times
-	 * @param list of required Flights
+	 * @param index of required Flights
 	 */
-	private void calcMin(LinkedList<Flight> required) {
-		for(Flight current:required) {			
-			minCost = minCost + current.getFlightTime();
+	private void calcMin(FlightIndex required) {
+		for(int slot = 0; slot < required.size(); slot++) {			
+			minCost = minCost + required.getFlightTime(slot);
 		}
 	}
 
@@ -26,26 +24,18 @@ public class HeuristicA implements IStrategy{
 	 * Calculates the Heuristic for a given state
 	 */
 	@Override
-	public int calcHCost(State child) {
+	public int calcHCost(SearchNode child) {
 		int hCost = minCost;
-		LinkedList<Flight> toBeCovered = child.coveredFlights(minRoute);
 		
-		Flight lastEdge = child.getLast();
-		if(toBeCovered != null) {
-			if(child.numEdge() > 1) {
-				hCost = child.getHeur();
-			}
-			
-			for(Flight current: toBeCovered) {
-
-				if(current != null && current.sameFlight(lastEdge)) { // always satisfied
-					
-					hCost = hCost - lastEdge.getFlightTime();
-					break;
-				}
-				
-			}
+		// THE PARENT'S HEURISTIC, WHICH IS minCost FOR THE START TOO
+		if(child.getLast() != -1) {
+			hCost = child.getHeur();
+		}
+		
+		if(child.coversNewFlight()) {
+			hCost = hCost - network.getFlightTime(child.getLast());
 		}
+		
 		if(hCost < 0) {
 			return 0;
 		}
@@ -54,4 +44,3 @@ public class HeuristicA implements IStrategy{
 		return hCost;
 	}
 }
-
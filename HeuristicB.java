@@ -0,0 +1,97 @@
+/**
+ * Heuristic that also counts the cost of getting between the
+ * required flights, not just the flights themselves.
+ *
+ * For the required flights still uncovered it adds up
+ *  - their flight times
+ *  - the delay at the end of each of them, except the largest one
+ *    since the last flight of the route doesn't wait out its delay
+ *  - a connection cost into the start of each of them. Every
+ *    flight is reached either from the end of another uncovered
+ *    flight or, for exactly one of them, from the current city.
+ *    Each takes its cheapest choice from the ShortestPaths table
+ *
+ * Any route finishing the schedule pays at least all of this so the
+ * heuristic is admissible. It is also consistent: moving one edge
+ * changes only the current city term and by no more than the edge
+ * costs, and flying a required flight f lets f take the current
+ * city while whoever came from the city now takes f
+ */
+public class HeuristicB implements IStrategy{
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private int[] uncovered;
+	private int[] connection;
+
+	public HeuristicB(CompiledGraph map, FlightIndex flights, ShortestPaths table) {
+		network = map;
+		required = flights;
+		paths = table;
+		uncovered = new int[required.size()];
+		connection = new int[required.size()];
+	}
+
+	/**
+	 * Calculates the Heuristic for a given state
+	 */
+	@Override
+	public int calcHCost(SearchNode child) {
+		int numLeft = 0;
+
+		for(int slot = 0; slot < required.size(); slot++) {
+			if(!child.isCovered(slot)) {
+				uncovered[numLeft++] = slot;
+			}
+		}
+		return estimate(child.getLocation(), numLeft);
+	}
+
+	/**
+	 * Adds up the heuristic for the flights in the first numLeft
+	 * entries of uncovered, from the given city
+	 */
+	private int estimate(int city, int numLeft) {
+		if(numLeft == 0) {
+			return 0;
+		}
+
+		long hCost = 0;
+		int maxDelay = 0;
+		for(int i = 0; i < numLeft; i++) {
+			int slot = uncovered[i];
+			int delay = network.getDelay(required.getTo(slot));
+
+			hCost += required.getFlightTime(slot) + delay;
+			if(delay > maxDelay) {
+				maxDelay = delay;
+			}
+		}
+		hCost -= maxDelay;
+
+		// CHEAPEST WAY INTO EACH FLIGHT FROM THE END OF ANOTHER
+		long connections = 0;
+		for(int i = 0; i < numLeft; i++) {
+			int start = required.getFrom(uncovered[i]);
+			int best = ShortestPaths.UNREACHABLE;
+
+			for(int j = 0; j < numLeft; j++) {
+				if(i != j) {
+					best = Math.min(best, paths.getCost(required.getTo(uncovered[j]), start));
+				}
+			}
+			connection[i] = best;
+			connections += best;
+		}
+
+		// ONE OF THEM IS REACHED FROM HERE INSTEAD
+		long firstLeg = Long.MAX_VALUE;
+		for(int i = 0; i < numLeft; i++) {
+			long leg = (long) paths.getCost(city, required.getFrom(uncovered[i])) - connection[i];
+			firstLeg = Math.min(firstLeg, leg);
+		}
+		hCost += connections + firstLeg;
+
+		return (int) Math.min(hCost, ShortestPaths.UNREACHABLE);
+	}
+}
\ No newline at end of file
@@ -1,3 +1,8 @@
 public interface IStrategy {
-	public int calcHCost(State child);
-}
\ No newline at end of file
+	
+	/**
+	 * Calculates the heuristic of a node, which starts out
+	 * holding its parent's heuristic
+	 */
+	public int calcHCost(SearchNode child);
+}
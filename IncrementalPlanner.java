@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the optimal route for a changing request on a changing
+ * network, without starting from nothing after every change.
+ *
+ * Delays, flight times and required flights can be changed any
+ * number of times between calls to replan. Replanning reuses the
+ * two expensive things from the plan before:
+ * - the ShortestPaths table behind HeuristicB is updated, searching
+ *   again only from cities whose cheapest paths got dearer
+ * - the previous route, re-costed on the new network and extended
+ *   to any flights added, is a route the search only has to beat, so
+ *   every State that can't lead to something cheaper is never opened
+ *
+ * The search itself is ARA* at weight 1 started from that route,
+ * so the route returned is optimal
+ */
+public class IncrementalPlanner {
+	private CompiledGraph network;
+	private ShortestPaths paths;
+	private int start;
+	private int[] requiredFrom;
+	private int[] requiredTo;
+	private int numRequired;
+	private int[] route;
+	private SearchMetrics metrics;
+
+	/**
+	 * @param CompiledGraph to plan on
+	 * @param ShortestPaths of the network
+	 * @param integer city id routes start from
+	 */
+	public IncrementalPlanner(CompiledGraph map, ShortestPaths table, int startCity) {
+		network = map;
+		paths = table;
+		start = startCity;
+		requiredFrom = new int[8];
+		requiredTo = new int[8];
+		numRequired = 0;
+		route = new int[0];
+	}
+
+	/**
+	 * Changes the delay at a city
+	 * @param integer city id
+	 * @param integer minutes
+	 */
+	public void setDelay(int city, int minutes) {
+		network = network.withDelay(city, minutes);
+	}
+
+	/**
+	 * Changes the flight time between two cities, both ways,
+	 * as a Time line of the input does
+	 * @param integer city id
+	 * @param integer city id
+	 * @param integer minutes
+	 */
+	public void setFlightTime(int city1, int city2, int minutes) {
+		for(int edge = network.edgeStart(city1); edge < network.edgeEnd(city1); edge++) {
+			if(network.getTarget(edge) == city2) {
+				network = network.withFlightTime(edge, minutes);
+			}
+		}
+		for(int edge = network.edgeStart(city2); edge < network.edgeEnd(city2); edge++) {
+			if(network.getTarget(edge) == city1) {
+				network = network.withFlightTime(edge, minutes);
+			}
+		}
+	}
+
+	/**
+	 * Adds a required flight
+	 * @param integer city id of departure
+	 * @param integer city id of arrival
+	 */
+	public void addFlight(int from, int to) {
+		if(network.findEdge(from, to) == -1) {
+			throw new IllegalArgumentException("No flight from " + network.getName(from) + " to " + network.getName(to));
+		}
+		if(numRequired == requiredFrom.length) {
+			requiredFrom = Arrays.copyOf(requiredFrom, numRequired * 2);
+			requiredTo = Arrays.copyOf(requiredTo, numRequired * 2);
+		}
+		requiredFrom[numRequired] = from;
+		requiredTo[numRequired] = to;
+		numRequired++;
+	}
+
+	/**
+	 * Removes one request for a flight
+	 * @param integer city id of departure
+	 * @param integer city id of arrival
+	 * @return true if it was required. false otherwise
+	 */
+	public boolean removeFlight(int from, int to) {
+		for(int i = 0; i < numRequired; i++) {
+			if(requiredFrom[i] == from && requiredTo[i] == to) {
+				numRequired--;
+				System.arraycopy(requiredFrom, i + 1, requiredFrom, i, numRequired - i);
+				System.arraycopy(requiredTo, i + 1, requiredTo, i, numRequired - i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the optimal route for the flights now required on the
+	 * network as it now is
+	 * @return the Goal State. null if no route exists
+	 */
+	public State replan() {
+		paths = paths.update(network);
+		FlightIndex required = new FlightIndex(network, Arrays.copyOf(requiredFrom, numRequired),
+				Arrays.copyOf(requiredTo, numRequired));
+		metrics = new SearchMetrics("incremental", false);
+
+		if(required.size() == 0) {
+			route = new int[0];
+			return new State(start, null, -1, 0, 0, new Coverage(0));
+		}
+
+		AnytimeSearch search = new AnytimeSearch(network, required, new HeuristicB(network, required, paths),
+				metrics, (goal, bound, millis) -> {
+				});
+		search.startFrom(repair(required));
+		State goal = search.search(start, 1, 0, 0);
+
+		route = goal == null ? new int[0] : goal.getPathSoFar();
+		return goal;
+	}
+
+	/**
+	 * Gives the network with every change made so far
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Gives the shortest path table as of the last replan
+	 * @return ShortestPaths
+	 */
+	public ShortestPaths getPaths() {
+		return paths;
+	}
+
+	/**
+	 * Gives what the last replan did
+	 * @return SearchMetrics
+	 */
+	public SearchMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Flies the last route on the network as it is now, stopping once
+	 * every flight is covered, then adds a cheapest path to and along
+	 * each flight still left. A flight covered on the way to another
+	 * is flown again, which only makes the starting bound looser
+	 * @return goal State of the route. null if there was no route
+	 * before and it can't be built
+	 */
+	private State repair(FlightIndex required) {
+		int kept = 0;
+		Coverage covered = new Coverage(required.size());
+		int city = start;
+
+		for(int edge: route) {
+			if(covered.numCovered() == required.size()) {
+				break;
+			}
+			kept++;
+			covered = required.cover(covered, edge);
+			city = network.getTarget(edge);
+		}
+		int[] left = new int[required.size() - covered.numCovered()];
+		int numLeft = 0;
+		int at = city;
+		for(int slot = 0; slot < required.size(); slot++) {
+			if(covered.isCovered(slot)) {
+				continue;
+			}
+			if(paths.getCost(at, required.getFrom(slot)) >= ShortestPaths.UNREACHABLE) {
+				return null;
+			}
+			left[numLeft++] = required.getEdge(slot);
+			at = required.getTo(slot);
+		}
+		int[] rest = paths.expand(city, left);
+		int[] joined = Arrays.copyOf(route, kept + rest.length);
+		System.arraycopy(rest, 0, joined, kept, rest.length);
+		return State.buildRoute(network, required, start, joined);
+	}
+}
@@ -0,0 +1,224 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Writes random input files in the City / Time / Flight format.
+ *
+ * "random" joins the cities with a random tree, so every city can be
+ * reached, and then joins each other pair of cities with the chance
+ * given by the density. Required flights are picked from the routes.
+ *
+ * "backandforth" splits the cities into two clusters joined by a few
+ * long routes. Every required flight crosses between the clusters and
+ * they alternate in direction, so any route has to keep flying back
+ * and forth and the order of the flights matters a lot. This is the
+ * sort of input HeuristicA does worst on.
+ *
+ * In random mode the network only depends on the seed, cities and
+ * density, so files which differ only in the number of flights share
+ * a network
+ */
+public class InstanceGenerator {
+	public static final String RANDOM = "random";
+	public static final String BACK_AND_FORTH = "backandforth";
+
+	private Random random;
+	private PrintStream out;
+	private String[] names;
+
+	// ROUTES WRITTEN SO FAR
+	private int[] routeA;
+	private int[] routeB;
+	private int numRoutes;
+
+	/**
+	 * Usage: java InstanceGenerator outputFile [--mode=random|backandforth]
+	 *        [--cities=n] [--density=percent] [--flights=n] [--seed=n]
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = FlightScheduler.option(args, "mode", RANDOM);
+		int cities = Integer.parseInt(FlightScheduler.option(args, "cities", "20"));
+		int density = Integer.parseInt(FlightScheduler.option(args, "density", "10"));
+		int flights = Integer.parseInt(FlightScheduler.option(args, "flights", "4"));
+		long seed = Long.parseLong(FlightScheduler.option(args, "seed", "1"));
+
+		new InstanceGenerator(seed).write(args[0], mode, cities, density, flights);
+	}
+
+	public InstanceGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Writes an input file
+	 * @param String filename
+	 * @param String mode, random or backandforth
+	 * @param integer number of cities, at least 2
+	 * @param integer percentage of city pairs joined by a route
+	 * @param integer number of required flights
+	 */
+	public void write(String filename, String mode, int numCities, int density, int numFlights) throws IOException {
+		if(numCities < 2) {
+			throw new IllegalArgumentException("Need at least 2 cities");
+		}
+		try (PrintStream file = new PrintStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out = file;
+			if(mode.equals(RANDOM)) {
+				writeRandom(numCities, density, numFlights);
+			} else if(mode.equals(BACK_AND_FORTH)) {
+				writeBackAndForth(numCities, density, numFlights);
+			} else {
+				throw new IllegalArgumentException("Unknown mode " + mode);
+			}
+		}
+	}
+
+	private void writeRandom(int numCities, int density, int numFlights) {
+		writeCities(numCities);
+		joinCluster(0, numCities, density);
+
+		if(numFlights > numRoutes * 2) {
+			throw new IllegalArgumentException("Only " + numRoutes * 2 + " flights to choose from");
+		}
+		// EACH ROUTE CAN BE FLOWN EITHER WAY, SO PICK FROM BOTH DIRECTIONS
+		int[] picked = pick(numRoutes * 2, numFlights);
+		for(int flight: picked) {
+			int route = flight >> 1;
+			if((flight & 1) == 0) {
+				writeFlight(routeA[route], routeB[route]);
+			} else {
+				writeFlight(routeB[route], routeA[route]);
+			}
+		}
+	}
+
+	private void writeBackAndForth(int numCities, int density, int numFlights) {
+		int half = numCities / 2;
+		int numCrossings = numFlights + numFlights / 2 + 1;
+
+		if(half < 2) {
+			throw new IllegalArgumentException("Need at least 4 cities");
+		}
+		writeCities(numCities);
+		joinCluster(0, half, density);
+		joinCluster(half, numCities, density);
+
+		// LONG ROUTES BETWEEN THE CLUSTERS, THE FIRST ONES REQUIRED
+		int firstCrossing = numRoutes;
+		for(int i = 0; i < numCrossings; i++) {
+			writeRoute(random.nextInt(half), half + random.nextInt(numCities - half), 600 + random.nextInt(300));
+		}
+		for(int i = 0; i < numFlights; i++) {
+			int route = firstCrossing + i;
+			if(i % 2 == 0) {
+				writeFlight(routeA[route], routeB[route]);
+			} else {
+				writeFlight(routeB[route], routeA[route]);
+			}
+		}
+	}
+
+	/**
+	 * The first city is always the start city
+	 */
+	private void writeCities(int numCities) {
+		names = new String[numCities];
+		routeA = new int[16];
+		routeB = new int[16];
+		numRoutes = 0;
+
+		for(int i = 0; i < numCities; i++) {
+			names[i] = i == 0 ? "Sydney" : "City" + i;
+			out.println("City " + names[i] + " " + (15 + random.nextInt(106)));
+		}
+	}
+
+	/**
+	 * Joins the cities first to last - 1 with a random tree, then
+	 * joins each other pair with the chance given by the density.
+	 * Pairs are skipped over in geometrically distributed steps, so
+	 * the time taken goes with the number of routes written rather
+	 * than the number of pairs
+	 */
+	private void joinCluster(int first, int last, int density) {
+		int[] parent = new int[last - first];
+		double p = Math.min(100, Math.max(0, density)) / 100.0;
+
+		for(int i = 1; i < parent.length; i++) {
+			parent[i] = random.nextInt(i);
+			writeRoute(first + parent[i], first + i, 30 + random.nextInt(90));
+		}
+		if(p == 0) {
+			return;
+		}
+		for(int i = 0; i < parent.length; i++) {
+			for(int j = i + 1 + skip(p); j < parent.length; j += 1 + skip(p)) {
+				if(parent[j] != i) {
+					writeRoute(first + i, first + j, 30 + random.nextInt(90));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of pairs passed over before the next one joined
+	 */
+	private int skip(double p) {
+		if(p >= 1) {
+			return 0;
+		}
+		double steps = Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+		return (int) Math.min(Integer.MAX_VALUE / 2, steps);
+	}
+
+	private void writeRoute(int a, int b, int minutes) {
+		if(numRoutes == routeA.length) {
+			routeA = Arrays.copyOf(routeA, numRoutes * 2);
+			routeB = Arrays.copyOf(routeB, numRoutes * 2);
+		}
+		routeA[numRoutes] = a;
+		routeB[numRoutes] = b;
+		numRoutes++;
+		out.println("Time " + names[a] + " " + names[b] + " " + minutes);
+	}
+
+	private void writeFlight(int from, int to) {
+		out.println("Flight " + names[from] + " " + names[to]);
+	}
+
+	/**
+	 * Picks distinct numbers below a limit, by a partial shuffle
+	 * for small limits and by retrying for large ones
+	 * @return array of the numbers picked
+	 */
+	private int[] pick(int limit, int count) {
+		int[] picked = new int[count];
+
+		if(limit <= 4 * count) {
+			int[] all = new int[limit];
+			for(int i = 0; i < limit; i++) {
+				all[i] = i;
+			}
+			for(int i = 0; i < count; i++) {
+				int j = i + random.nextInt(limit - i);
+				int swap = all[i];
+				all[i] = all[j];
+				all[j] = swap;
+			}
+			return Arrays.copyOf(all, count);
+		}
+		HashSet<Integer> seen = new HashSet<Integer>();
+		for(int i = 0; i < count; ) {
+			int next = random.nextInt(limit);
+			if(seen.add(next)) {
+				picked[i++] = next;
+			}
+		}
+		return picked;
+	}
+}
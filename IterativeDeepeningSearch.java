@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Iterative deepening A* (IDA*), for when memory is tight.
+ *
+ * Each iteration is a depth first search that only goes as far as
+ * states whose f-cost is within a bound. If no route is found the
+ * bound is raised to at least the smallest f-cost that was cut off
+ * and the search starts again. Only the path being searched is kept,
+ * plus a TranspositionTable of fixed size which stops the same state
+ * being searched twice in an iteration, so memory use is set up front
+ * and never grows with the size of the search.
+ *
+ * Raising the bound to exactly the smallest cut off f-cost takes an
+ * iteration for every distinct f-cost, so the bound is raised a little
+ * further than that. Routes found within the bound lower it to their
+ * cost and the iteration carries on, so the route returned is still
+ * the cheapest. With an admissible heuristic the route is optimal
+ */
+public class IterativeDeepeningSearch {
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private IStrategy calcH;
+	private TranspositionTable table;
+	private SearchMetrics metrics;
+	private int numIterations;
+
+	// THE PATH BEING SEARCHED AND THE NEXT EDGE TO TRY AT EACH DEPTH
+	private State[] path;
+	private int[] nextEdge;
+
+	/**
+	 * @param CompiledGraph to search
+	 * @param index of required flights
+	 * @param heuristic strategy, which must be admissible
+	 * @param long most bytes the transposition table may use. It
+	 * never takes more than half the heap left when the search starts
+	 * @param SearchMetrics to count into
+	 */
+	public IterativeDeepeningSearch(CompiledGraph map, FlightIndex flights, IStrategy heuristic, long tableBytes,
+			SearchMetrics counts) {
+		network = map;
+		required = flights;
+		calcH = heuristic;
+		Runtime runtime = Runtime.getRuntime();
+		long heapLeft = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		table = new TranspositionTable(required.size(), Math.min(tableBytes, heapLeft / 2));
+		metrics = counts;
+		path = new State[64];
+		nextEdge = new int[64];
+	}
+
+	/**
+	 * Finds the optimal route from the given city which contains all
+	 * the flights requested
+	 * @precondition at least one flight is required
+	 * @param integer city id to start from
+	 * @return the Goal State. null if no route exists
+	 */
+	public State search(int start) {
+		State initial = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+		initial.updateH(calcH.calcHCost(initial));
+		metrics.startCounting(false);
+		metrics.setRootH(initial.getHeur());
+
+		int bound = initial.calcF();
+		numIterations = 0;
+		while(true) {
+			numIterations++;
+			table.newIteration();
+
+			int cutOff = INFINITY;
+			State best = null;
+			int limit = bound;
+			int depth = 0;
+			push(initial, 0);
+
+			while(depth >= 0) {
+				State current = path[depth];
+				int city = current.getLocation();
+
+				if(nextEdge[depth] == network.edgeEnd(city)) {
+					path[depth--] = null;
+					continue;
+				}
+				int edge = nextEdge[depth]++;
+				int child = network.getTarget(edge);
+				int cost = current.getCostSoFar() + network.getWeight(edge);
+				Coverage covered = required.cover(current.getCoverage(), edge);
+				metrics.countGenerated();
+
+				// NO DELAY AFTER LANDING THE LAST FLIGHT
+				if(covered.numCovered() == required.size()) {
+					cost -= network.getDelay(child);
+					if(cost <= limit) {
+						best = new State(child, current, edge, cost, 0, covered);
+						limit = cost - 1;
+					} else if(cost < cutOff) {
+						cutOff = cost;
+					}
+					continue;
+				}
+				if(cost > limit) {
+					cutOff = Math.min(cutOff, cost);
+					continue;
+				}
+				if(table.reachedAsCheaply(child, covered, cost)) {
+					metrics.countPruned();
+					continue;
+				}
+
+				State temp = new State(child, current, edge, cost, current.getHeur(), covered);
+				temp.updateH(calcH.calcHCost(temp));
+				if(temp.calcF() > limit) {
+					cutOff = Math.min(cutOff, temp.calcF());
+					continue;
+				}
+				metrics.countExpanded();
+				push(temp, ++depth);
+			}
+
+			if(best != null) {
+				return best;
+			}
+			if(cutOff == INFINITY) {
+				return null;
+			}
+			bound = Math.max(cutOff, bound + bound / 16);
+		}
+	}
+
+	/**
+	 * Gives number of iterations the most recent search took
+	 * @return integer
+	 */
+	public int getNumIterations() {
+		return numIterations;
+	}
+
+	/**
+	 * Gives number of entries the transposition table holds
+	 * @return integer
+	 */
+	public int getTableCapacity() {
+		return table.capacity();
+	}
+
+	private void push(State state, int depth) {
+		if(depth == path.length) {
+			path = Arrays.copyOf(path, depth * 2);
+			nextEdge = Arrays.copyOf(nextEdge, depth * 2);
+		}
+		path[depth] = state;
+		nextEdge[depth] = network.edgeStart(state.getLocation());
+	}
+}
@@ -0,0 +1,421 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Heuristic solver for requests with too many flights for the exact
+ * engines. Like HeldKarpSearch it only decides the order the required
+ * flights are flown in, with a cheapest path between each, but instead
+ * of trying every order it improves one order until time runs out.
+ *
+ * An order starts out greedy, always flying next the flight whose
+ * start is cheapest to get to, and is brought to a local optimum with
+ * three kinds of move:
+ *  - 2-opt, flying a run of the order backwards
+ *  - or-opt, moving a run of up to three flights elsewhere
+ *  - or-opt with the run reversed as it is moved
+ * Then, until the budget is spent, a few flights at random are taken
+ * out and put back where they are cheapest, and the result is brought
+ * to a local optimum again and kept if it is no worse.
+ *
+ * The cost of getting from the end of every flight to the start of
+ * every other is looked up once in the ShortestPaths table. The order
+ * is kept with the start city before it and a finish after it, whose
+ * leg takes back the delay after the last flight, along with running
+ * sums of the legs forwards and backwards. A move then only changes
+ * the legs at its ends plus, when a run is reversed, the difference
+ * of the two sums over it, so each move is costed in constant time.
+ *
+ * Each thread restarts from its own order, the first from the greedy
+ * one and the others from a greedy order with random choices, and the
+ * best route of any thread is returned
+ */
+public class LocalSearch {
+	private static final long INFEASIBLE = ShortestPaths.UNREACHABLE;
+	private static final int MAX_RUN = 3;
+	private static final int GREEDY_CHOICES = 3;
+	// AT MOST ONE FLIGHT IN THIS MANY IS TAKEN OUT AT ONCE
+	private static final int MAX_OUT = 3;
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private int numFlights;
+	private int startNode;
+	private int endNode;
+	private int[] legs;
+	private long flightCosts;
+	private long deadline;
+	private Worker[] workers;
+
+	/**
+	 * @param CompiledGraph to search
+	 * @param index of required flights
+	 * @param ShortestPaths of the network, which include the delays
+	 * @param integer number of threads, each restarting on its own
+	 */
+	public LocalSearch(CompiledGraph map, FlightIndex flights, ShortestPaths table, int numThreads) {
+		network = map;
+		required = flights;
+		paths = table;
+		numFlights = required.size();
+		startNode = numFlights;
+		endNode = numFlights + 1;
+		workers = new Worker[numThreads];
+	}
+
+	/**
+	 * Finds a route from the given city which contains all the
+	 * flights requested, as cheap as it can within the budget
+	 * @precondition at least one flight is required
+	 * @param integer city id to start from
+	 * @param long milliseconds to search for
+	 * @param long seed of the random choices
+	 * @return the Goal State. null if no route was found
+	 */
+	public State search(int start, long budget, long seed) throws InterruptedException {
+		deadline = System.nanoTime() + budget * 1000000;
+		calcLegs(start);
+
+		Thread[] threads = new Thread[workers.length];
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(new Random(seed + i), i > 0);
+			threads[i] = new Thread(workers[i], "restart-" + i);
+			threads[i].start();
+		}
+		for(Thread thread: threads) {
+			thread.join();
+		}
+
+		Worker best = workers[0];
+		for(Worker worker: workers) {
+			if(worker.bestCost < best.bestCost) {
+				best = worker;
+			}
+		}
+		if(best.bestCost >= INFEASIBLE) {
+			return null;
+		}
+		return State.buildRoute(network, required, start, paths.expand(start, flights(best.bestOrder)));
+	}
+
+	/**
+	 * Gives number of moves costed by all threads in the most
+	 * recent search
+	 * @return long
+	 */
+	public long getNumMoves() {
+		long total = 0;
+		for(Worker worker: workers) {
+			total += worker.moves;
+		}
+		return total;
+	}
+
+	/**
+	 * Gives number of times flights were taken out and put back
+	 * by all threads in the most recent search
+	 * @return long
+	 */
+	public long getNumRounds() {
+		long total = 0;
+		for(Worker worker: workers) {
+			total += worker.rounds;
+		}
+		return total;
+	}
+
+	/**
+	 * Works out the leg between every pair of nodes: the cheapest
+	 * path from the end of one flight, or the start city, to the
+	 * start of another, and into the finish the delay after the
+	 * last flight taken back
+	 */
+	private void calcLegs(int start) {
+		int size = numFlights + 2;
+		legs = new int[size * size];
+		Arrays.fill(legs, ShortestPaths.UNREACHABLE);
+		flightCosts = 0;
+
+		for(int from = 0; from < size; from++) {
+			if(from == endNode) {
+				continue;
+			}
+			int city = from == startNode ? start : required.getTo(from);
+			for(int to = 0; to < numFlights; to++) {
+				legs[from * size + to] = paths.getCost(city, required.getFrom(to));
+			}
+			legs[from * size + endNode] = from == startNode ? 0 : -network.getDelay(city);
+		}
+		for(int slot = 0; slot < numFlights; slot++) {
+			flightCosts += required.getFlightTime(slot) + network.getDelay(required.getTo(slot));
+		}
+	}
+
+	private int leg(int from, int to) {
+		return legs[from * (numFlights + 2) + to];
+	}
+
+	/**
+	 * Gives the edge of each required flight of an order, in order
+	 * @return array of edge ids
+	 */
+	private int[] flights(int[] order) {
+		int[] edges = new int[numFlights];
+		for(int i = 0; i < numFlights; i++) {
+			edges[i] = required.getEdge(order[i + 1]);
+		}
+		return edges;
+	}
+
+	/**
+	 * One restart. Orders are arrays of the start node, the flight
+	 * slots and the finish node
+	 */
+	private class Worker implements Runnable {
+		private Random random;
+		private boolean randomStart;
+		private int[] order;
+		private int[] scratch;
+		private long[] forward;
+		private long[] backward;
+		private int[] bestOrder;
+		private long bestCost;
+		private long moves;
+		private long rounds;
+
+		/**
+		 * @param Random for the choices
+		 * @param boolean true to start from a greedy order with
+		 * random choices. false for the plain greedy order
+		 */
+		Worker(Random choices, boolean randomised) {
+			random = choices;
+			randomStart = randomised;
+			order = new int[numFlights + 2];
+			scratch = new int[numFlights + 2];
+			forward = new long[numFlights + 2];
+			backward = new long[numFlights + 2];
+		}
+
+		@Override
+		public void run() {
+			greedy();
+			improve(order);
+			bestOrder = order.clone();
+			bestCost = cost();
+			long current = bestCost;
+			int[] candidate = new int[numFlights + 2];
+
+			// TWO FLIGHTS OR FEWER ARE ALREADY AT THEIR BEST ORDER
+			while(numFlights > 2 && System.nanoTime() < deadline) {
+				System.arraycopy(order, 0, candidate, 0, order.length);
+				rebuild(candidate);
+				improve(candidate);
+				rounds++;
+
+				long found = cost();
+				if(found <= current) {
+					int[] swap = order;
+					order = candidate;
+					candidate = swap;
+					current = found;
+				}
+				if(found < bestCost) {
+					bestCost = found;
+					System.arraycopy(order, 0, bestOrder, 0, order.length);
+				}
+			}
+		}
+
+		/**
+		 * Builds the first order, each time flying next the flight
+		 * cheapest to get to, or for a random start one of the few cheapest
+		 */
+		private void greedy() {
+			boolean[] taken = new boolean[numFlights];
+			int[] choices = new int[GREEDY_CHOICES];
+			order[0] = startNode;
+			order[numFlights + 1] = endNode;
+
+			for(int i = 1; i <= numFlights; i++) {
+				int numChoices = 0;
+				for(int slot = 0; slot < numFlights; slot++) {
+					if(taken[slot]) {
+						continue;
+					}
+					// KEEPS THE CHEAPEST FEW SORTED
+					int at = Math.min(numChoices, GREEDY_CHOICES - 1);
+					if(numChoices == GREEDY_CHOICES && leg(order[i - 1], slot) >= leg(order[i - 1], choices[at])) {
+						continue;
+					}
+					while(at > 0 && leg(order[i - 1], slot) < leg(order[i - 1], choices[at - 1])) {
+						choices[at] = choices[at - 1];
+						at--;
+					}
+					choices[at] = slot;
+					numChoices = Math.min(numChoices + 1, GREEDY_CHOICES);
+				}
+				order[i] = choices[randomStart ? random.nextInt(numChoices) : 0];
+				taken[order[i]] = true;
+			}
+		}
+
+		/**
+		 * Applies improving moves until there are none or time runs out
+		 */
+		private void improve(int[] s) {
+			do {
+				sums(s);
+			} while(System.nanoTime() < deadline && (twoOpt(s) || orOpt(s)));
+		}
+
+		/**
+		 * Fills in the running sums of the legs of an order, forwards
+		 * and with every leg flown the other way
+		 */
+		private void sums(int[] s) {
+			forward[0] = 0;
+			backward[0] = 0;
+			for(int k = 0; k <= numFlights; k++) {
+				forward[k + 1] = forward[k] + leg(s[k], s[k + 1]);
+				backward[k + 1] = backward[k] + leg(s[k + 1], s[k]);
+			}
+		}
+
+		/**
+		 * Gives the cost of the order the sums were last worked out for
+		 */
+		private long cost() {
+			return flightCosts + forward[numFlights + 1];
+		}
+
+		/**
+		 * Flies the run s[i..j] backwards if that is cheaper
+		 * @return true if a move was made
+		 */
+		private boolean twoOpt(int[] s) {
+			for(int i = 1; i < numFlights; i++) {
+				for(int j = i + 1; j <= numFlights; j++) {
+					moves++;
+					long delta = (long) leg(s[i - 1], s[j]) + leg(s[i], s[j + 1]) - leg(s[i - 1], s[i])
+							- leg(s[j], s[j + 1]) + (backward[j] - backward[i]) - (forward[j] - forward[i]);
+					if(delta < 0) {
+						reverse(s, i, j);
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Moves the run s[i..e] to between s[p] and s[p + 1], the
+		 * same way round or reversed, if that is cheaper
+		 * @return true if a move was made
+		 */
+		private boolean orOpt(int[] s) {
+			for(int length = 1; length <= MAX_RUN; length++) {
+				for(int i = 1; i + length - 1 <= numFlights; i++) {
+					int e = i + length - 1;
+					long removed = (long) leg(s[i - 1], s[e + 1]) - leg(s[i - 1], s[i]) - leg(s[e], s[e + 1]);
+					long turned = (backward[e] - backward[i]) - (forward[e] - forward[i]);
+
+					for(int p = 0; p <= numFlights; p++) {
+						if(p >= i - 1 && p <= e) {
+							continue;
+						}
+						moves++;
+						long gap = removed - leg(s[p], s[p + 1]);
+						if(gap + leg(s[p], s[i]) + leg(s[e], s[p + 1]) < 0) {
+							move(s, i, e, p, false);
+							return true;
+						}
+						if(length > 1 && gap + leg(s[p], s[e]) + leg(s[i], s[p + 1]) + turned < 0) {
+							move(s, i, e, p, true);
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		private void reverse(int[] s, int i, int j) {
+			for(; i < j; i++, j--) {
+				int swap = s[i];
+				s[i] = s[j];
+				s[j] = swap;
+			}
+		}
+
+		/**
+		 * Moves the run s[i..e] to between s[p] and s[p + 1]
+		 */
+		private void move(int[] s, int i, int e, int p, boolean reversed) {
+			int length = e - i + 1;
+			int at = 0;
+
+			for(int k = 0; k < s.length; k++) {
+				if(k >= i && k <= e) {
+					continue;
+				}
+				scratch[at++] = s[k];
+				if(k == p) {
+					for(int r = 0; r < length; r++) {
+						scratch[at++] = s[reversed ? e - r : i + r];
+					}
+				}
+			}
+			System.arraycopy(scratch, 0, s, 0, s.length);
+		}
+
+		/**
+		 * Takes some flights out, either a run of the order or ones
+		 * picked at random, and puts each back where it costs least
+		 */
+		private void rebuild(int[] s) {
+			int numOut = 2 + random.nextInt(Math.max(1, numFlights / MAX_OUT - 1));
+			int[] out = new int[numOut];
+			boolean[] removed = new boolean[numFlights];
+
+			if(random.nextBoolean()) {
+				int first = 1 + random.nextInt(numFlights - numOut + 1);
+				for(int k = 0; k < numOut; k++) {
+					out[k] = s[first + k];
+					removed[out[k]] = true;
+				}
+			} else {
+				for(int k = 0; k < numOut; k++) {
+					int slot;
+					do {
+						slot = random.nextInt(numFlights);
+					} while(removed[slot]);
+					removed[slot] = true;
+					out[k] = slot;
+				}
+			}
+
+			int size = 0;
+			for(int k = 0; k < s.length; k++) {
+				if(s[k] >= numFlights || !removed[s[k]]) {
+					s[size++] = s[k];
+				}
+			}
+
+			for(int slot: out) {
+				int bestAt = 0;
+				long bestGap = Long.MAX_VALUE;
+				for(int p = 0; p < size - 1; p++) {
+					long gap = (long) leg(s[p], slot) + leg(slot, s[p + 1]) - leg(s[p], s[p + 1]);
+					if(gap < bestGap) {
+						bestGap = gap;
+						bestAt = p;
+					}
+				}
+				System.arraycopy(s, bestAt + 1, s, bestAt + 2, size - bestAt - 1);
+				s[bestAt + 1] = slot;
+				size++;
+			}
+		}
+	}
+}
@@ -0,0 +1,491 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Fast reader for input files which builds the CompiledGraph
+ * straight from the file without any Node or Flight objects.
+ *
+ * The file is memory mapped and scanned byte by byte. Numbers are
+ * read without making Strings and each city name is only turned into
+ * a String the first time it is seen. Large files can be split at
+ * line boundaries into chunks which are read in parallel and then
+ * joined in file order, so the result is the same as reading it in
+ * one go.
+ *
+ * Unlike readInputFile every mistake in the file is reported, with
+ * the line it is on, instead of being skipped
+ */
+public class NetworkParser {
+	private static final long MAX_CHUNK = 1L << 30;
+	private static final byte[] CITY = "City".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TIME = "Time".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FLIGHT = "Flight".getBytes(StandardCharsets.US_ASCII);
+
+	private String filename;
+	private CompiledGraph network;
+	private int[] requiredFrom;
+	private int[] requiredTo;
+
+	public NetworkParser(String file) {
+		filename = file;
+	}
+
+	/**
+	 * Reads the file
+	 * @param integer number of chunks to split the file into and read
+	 * in parallel. 1 reads it in one go
+	 * @throws IOException if the file can't be read
+	 * @throws IllegalArgumentException naming the line of any mistake
+	 */
+	public void parse(int numChunks) throws IOException {
+		Chunk[] chunks;
+
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+		     FileChannel channel = file.getChannel()) {
+			chunks = split(channel, numChunks);
+		}
+		if(chunks.length == 1) {
+			chunks[0].parse();
+		} else {
+			Arrays.stream(chunks).parallel().forEach(Chunk::parse);
+		}
+
+		// LINE NUMBERS ARE ONLY KNOWN ONCE THE CHUNKS BEFORE ARE COUNTED
+		int firstLine = 0;
+		for(Chunk chunk: chunks) {
+			chunk.firstLine = firstLine;
+			if(chunk.problem != null) {
+				throw error(firstLine + chunk.numLines, chunk.problem);
+			}
+			firstLine += chunk.numLines;
+		}
+		join(chunks);
+	}
+
+	/**
+	 * Gives the network read
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Gives the city each required flight departs, in file order
+	 * @return array of city ids
+	 */
+	public int[] getRequiredFrom() {
+		return requiredFrom;
+	}
+
+	/**
+	 * Gives the city each required flight arrives, in file order
+	 * @return array of city ids
+	 */
+	public int[] getRequiredTo() {
+		return requiredTo;
+	}
+
+	/**
+	 * Maps the file in pieces that each end at the end of a line
+	 */
+	private Chunk[] split(FileChannel channel, int numChunks) throws IOException {
+		long size = channel.size();
+		long target = Math.max(1, Math.min(MAX_CHUNK, (size + numChunks - 1) / Math.max(1, numChunks)));
+		ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+		long start = 0;
+
+		do {
+			long end = Math.min(size, start + target);
+			MappedByteBuffer probe = null;
+
+			// MOVE THE END PAST THE NEXT NEW LINE
+			while(end < size) {
+				if(probe == null) {
+					probe = channel.map(FileChannel.MapMode.READ_ONLY, end - 1, Math.min(MAX_CHUNK, size - end + 1));
+				}
+				if(probe.get() == '\n') {
+					break;
+				}
+				end++;
+			}
+			chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+			start = end;
+		} while(start < size);
+
+		return chunks.toArray(new Chunk[0]);
+	}
+
+	/**
+	 * Puts the chunks back together in file order. Cities are numbered
+	 * in the order they are declared and each Time line gives an edge
+	 * both ways, as Graph does
+	 */
+	private void join(Chunk[] chunks) {
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		IntList delays = new IntList();
+		ArrayList<String> names = new ArrayList<String>();
+
+		for(Chunk chunk: chunks) {
+			for(int i = 0; i < chunk.cities.size(); i += 3) {
+				String name = chunk.names.get(chunk.cities.get(i));
+				if(ids.containsKey(name)) {
+					throw error(chunk.firstLine + chunk.cities.get(i + 2), "City " + name + " is declared twice");
+				}
+				ids.put(name, names.size());
+				names.add(name);
+				delays.add(chunk.cities.get(i + 1));
+			}
+		}
+
+		IntList from = new IntList();
+		IntList to = new IntList();
+		IntList minutes = new IntList();
+		for(Chunk chunk: chunks) {
+			int[] global = chunk.globalIds(ids);
+			for(int i = 0; i < chunk.times.size(); i += 4) {
+				int line = chunk.firstLine + chunk.times.get(i + 3);
+				int a = city(chunk, global, chunk.times.get(i), line);
+				int b = city(chunk, global, chunk.times.get(i + 1), line);
+				from.add(a);
+				to.add(b);
+				minutes.add(chunk.times.get(i + 2));
+				from.add(b);
+				to.add(a);
+				minutes.add(chunk.times.get(i + 2));
+			}
+		}
+		network = new CompiledGraph(names.toArray(new String[0]), delays.toArray(), from.toArray(),
+				to.toArray(), minutes.toArray());
+
+		IntList flightFrom = new IntList();
+		IntList flightTo = new IntList();
+		for(Chunk chunk: chunks) {
+			int[] global = chunk.globalIds(ids);
+			for(int i = 0; i < chunk.flights.size(); i += 3) {
+				int line = chunk.firstLine + chunk.flights.get(i + 2);
+				int a = city(chunk, global, chunk.flights.get(i), line);
+				int b = city(chunk, global, chunk.flights.get(i + 1), line);
+				if(network.findEdge(a, b) == -1) {
+					throw error(line, "No flight from " + network.getName(a) + " to " + network.getName(b));
+				}
+				flightFrom.add(a);
+				flightTo.add(b);
+			}
+		}
+		requiredFrom = flightFrom.toArray();
+		requiredTo = flightTo.toArray();
+	}
+
+	private int city(Chunk chunk, int[] global, int local, int line) {
+		if(global[local] == -1) {
+			throw error(line, "Unknown city " + chunk.names.get(local));
+		}
+		return global[local];
+	}
+
+	private IllegalArgumentException error(int line, String message) {
+		return new IllegalArgumentException(filename + ":" + line + ": " + message);
+	}
+
+	/**
+	 * One piece of the file and everything read from it. Cities are
+	 * numbered locally until the chunks are joined
+	 */
+	private class Chunk {
+		private MappedByteBuffer bytes;
+		private int position;
+		private int limit;
+		private int numLines;
+		private int firstLine;
+		private String problem;
+
+		private ArrayList<String> names;
+		private int[] table;
+		private IntList nameStarts;
+		private IntList nameLengths;
+
+		// FLAT RECORDS: CITY (name, delay, line), TIME (name, name, minutes, line)
+		// AND FLIGHT (name, name, line)
+		private IntList cities;
+		private IntList times;
+		private IntList flights;
+
+		Chunk(MappedByteBuffer mapped) {
+			bytes = mapped;
+			limit = mapped.limit();
+			names = new ArrayList<String>();
+			table = new int[1024];
+			Arrays.fill(table, -1);
+			nameStarts = new IntList();
+			nameLengths = new IntList();
+			cities = new IntList();
+			times = new IntList();
+			flights = new IntList();
+		}
+
+		/**
+		 * Reads every line of the chunk. A mistake stops the chunk
+		 * and is kept in problem, with numLines left on its line
+		 */
+		void parse() {
+			position = 0;
+			numLines = 0;
+
+			try {
+				read();
+			} catch (IllegalArgumentException e) {
+				problem = e.getMessage();
+			}
+		}
+
+		private void read() {
+			while(position < limit) {
+				numLines++;
+				skipSpaces();
+				if(atEndOfLine()) {
+					nextLine();
+					continue;
+				}
+
+				int start = position;
+				int length = token();
+				if(same(start, length, CITY)) {
+					cities.add(name());
+					cities.add(minutes("delay"));
+					cities.add(numLines);
+				} else if(same(start, length, TIME)) {
+					times.add(name());
+					times.add(name());
+					times.add(minutes("flight time"));
+					times.add(numLines);
+				} else if(same(start, length, FLIGHT)) {
+					flights.add(name());
+					flights.add(name());
+					flights.add(numLines);
+				} else {
+					throw localError("Expected City, Time or Flight but got " + text(start, length));
+				}
+
+				skipSpaces();
+				if(!atEndOfLine()) {
+					throw localError("Unexpected " + text(position, token()));
+				}
+				nextLine();
+			}
+		}
+
+		/**
+		 * Maps each local city number to its id in the joined network
+		 * @return array of ids. -1 for cities never declared
+		 */
+		int[] globalIds(HashMap<String, Integer> ids) {
+			int[] global = new int[names.size()];
+			for(int i = 0; i < global.length; i++) {
+				Integer id = ids.get(names.get(i));
+				global[i] = id == null ? -1 : id;
+			}
+			return global;
+		}
+
+		private void skipSpaces() {
+			while(position < limit) {
+				byte b = bytes.get(position);
+				if(b != ' ' && b != '\t' && b != '\r') {
+					break;
+				}
+				position++;
+			}
+		}
+
+		private boolean atEndOfLine() {
+			return position >= limit || bytes.get(position) == '\n';
+		}
+
+		private void nextLine() {
+			position++;
+		}
+
+		/**
+		 * Moves over the next token
+		 * @return integer length of the token
+		 */
+		private int token() {
+			int start = position;
+			while(position < limit) {
+				byte b = bytes.get(position);
+				if(b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+					break;
+				}
+				position++;
+			}
+			return position - start;
+		}
+
+		/**
+		 * Reads a city name and gives its local number, only making
+		 * a String for names not seen before in this chunk
+		 */
+		private int name() {
+			skipSpaces();
+			int start = position;
+			int length = token();
+			if(length == 0) {
+				throw localError("Missing city name");
+			}
+
+			int hash = 0;
+			for(int i = start; i < start + length; i++) {
+				hash = hash * 31 + bytes.get(i);
+			}
+			int mask = table.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while(table[slot] != -1) {
+				int id = table[slot];
+				if(nameLengths.get(id) == length && sameBytes(nameStarts.get(id), start, length)) {
+					return id;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			int id = names.size();
+			names.add(text(start, length));
+			nameStarts.add(start);
+			nameLengths.add(length);
+			table[slot] = id;
+			if(names.size() * 2 > table.length) {
+				rehash();
+			}
+			return id;
+		}
+
+		private void rehash() {
+			table = new int[table.length * 2];
+			Arrays.fill(table, -1);
+			int mask = table.length - 1;
+
+			for(int id = 0; id < names.size(); id++) {
+				int hash = 0;
+				for(int i = nameStarts.get(id); i < nameStarts.get(id) + nameLengths.get(id); i++) {
+					hash = hash * 31 + bytes.get(i);
+				}
+				int slot = (hash ^ (hash >>> 16)) & mask;
+				while(table[slot] != -1) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = id;
+			}
+		}
+
+		/**
+		 * Reads a number of minutes, which can't be negative since
+		 * the shortest paths and heuristics rely on costs never
+		 * going down
+		 * @param String what the minutes are, for the error
+		 */
+		private int minutes(String what) {
+			int value = number();
+			if(value < 0) {
+				throw localError("Expected a " + what + " of 0 or more but got " + value);
+			}
+			return value;
+		}
+
+		/**
+		 * Reads a whole number straight from the bytes
+		 */
+		private int number() {
+			skipSpaces();
+			int start = position;
+			int length = token();
+			int i = start;
+			boolean negative = false;
+			long value = 0;
+
+			if(length > 0 && bytes.get(i) == '-') {
+				negative = true;
+				i++;
+			}
+			if(i == start + length) {
+				throw localError("Expected a number but got " + text(start, length));
+			}
+			for(; i < start + length; i++) {
+				int digit = bytes.get(i) - '0';
+				if(digit < 0 || digit > 9) {
+					throw localError("Expected a number but got " + text(start, length));
+				}
+				value = value * 10 + digit;
+				if(value > Integer.MAX_VALUE) {
+					throw localError("Number too large " + text(start, length));
+				}
+			}
+			return (int) (negative ? -value : value);
+		}
+
+		private boolean same(int start, int length, byte[] word) {
+			if(length != word.length) {
+				return false;
+			}
+			for(int i = 0; i < length; i++) {
+				if(bytes.get(start + i) != word[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean sameBytes(int first, int second, int length) {
+			for(int i = 0; i < length; i++) {
+				if(bytes.get(first + i) != bytes.get(second + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String text(int start, int length) {
+			byte[] copy = new byte[length];
+			for(int i = 0; i < length; i++) {
+				copy[i] = bytes.get(start + i);
+			}
+			return new String(copy, StandardCharsets.UTF_8);
+		}
+
+		private IllegalArgumentException localError(String message) {
+			return new IllegalArgumentException(message);
+		}
+	}
+
+	/**
+	 * Growable array of ints
+	 */
+	private static class IntList {
+		private int[] data = new int[16];
+		private int size = 0;
+
+		void add(int value) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+
+		int get(int index) {
+			return data[index];
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
\ No newline at end of file
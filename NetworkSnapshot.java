@@ -0,0 +1,202 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary copy of a CompiledGraph and its required flights, written
+ * once so later runs skip reading the text input altogether.
+ *
+ * The file is memory mapped and every array is copied out of it in
+ * one go, already in the order CompiledGraph keeps it, so loading
+ * makes no object per edge and sorts nothing. A CRC-32C of everything
+ * after the checksum catches damaged files. All numbers are big
+ * endian ints:
+ *   magic, version, checksum, number of cities, number of edges,
+ *   number of required flights, the delays, the first edge of every
+ *   city plus one past the last edge, the target and the flight time
+ *   of every edge, the from and the to city of every required flight,
+ *   then every city name as its length in bytes and its UTF-8 bytes
+ */
+public class NetworkSnapshot {
+	private static final int MAGIC = 0x46534E53;
+	private static final int VERSION = 1;
+	private static final int HEADER = 24;
+	private static final int CHECKED = 12;
+
+	private String filename;
+	private CompiledGraph network;
+	private int[] requiredFrom;
+	private int[] requiredTo;
+
+	public NetworkSnapshot(String file) {
+		filename = file;
+	}
+
+	/**
+	 * Usage: java NetworkSnapshot inputFile outputFile
+	 *
+	 * Reads a text input and writes its snapshot
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Usage: java NetworkSnapshot inputFile outputFile");
+			System.exit(1);
+		}
+		try {
+			NetworkParser parser = new NetworkParser(args[0]);
+			parser.parse(Runtime.getRuntime().availableProcessors());
+			write(parser.getNetwork(), parser.getRequiredFrom(), parser.getRequiredTo(), args[1]);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Can't read input: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Checks if a file starts like a snapshot
+	 * @param String filename
+	 * @return true if it does. false otherwise, or if it can't be read
+	 */
+	public static boolean isSnapshot(String file) {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			return in.length() >= HEADER && in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of a network and its required flights
+	 * @param CompiledGraph
+	 * @param city ids each required flight departs
+	 * @param city ids each required flight arrives
+	 * @param String filename
+	 */
+	public static void write(CompiledGraph network, int[] from, int[] to, String file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bytes);
+		int numCities = network.numCities();
+
+		body.writeInt(numCities);
+		body.writeInt(network.numEdges());
+		body.writeInt(from.length);
+		for(int city = 0; city < numCities; city++) {
+			body.writeInt(network.getDelay(city));
+		}
+		for(int city = 0; city < numCities; city++) {
+			body.writeInt(network.edgeStart(city));
+		}
+		body.writeInt(network.numEdges());
+		for(int edge = 0; edge < network.numEdges(); edge++) {
+			body.writeInt(network.getTarget(edge));
+		}
+		for(int edge = 0; edge < network.numEdges(); edge++) {
+			body.writeInt(network.getFlightTime(edge));
+		}
+		for(int i = 0; i < from.length; i++) {
+			body.writeInt(from[i]);
+		}
+		for(int i = 0; i < to.length; i++) {
+			body.writeInt(to[i]);
+		}
+		for(int city = 0; city < numCities; city++) {
+			byte[] name = network.getName(city).getBytes(StandardCharsets.UTF_8);
+			body.writeInt(name.length);
+			body.write(name);
+		}
+		body.flush();
+
+		byte[] checked = bytes.toByteArray();
+		CRC32C crc = new CRC32C();
+		crc.update(checked);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt((int) crc.getValue());
+			out.write(checked);
+		}
+	}
+
+	/**
+	 * Reads the snapshot
+	 * @throws IOException if the file can't be read
+	 * @throws IllegalArgumentException if it isn't a snapshot this
+	 * version reads or it is damaged
+	 */
+	public void read() throws IOException {
+		MappedByteBuffer map;
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			if(channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(filename + ": not a network snapshot");
+			}
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(map.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException(filename + ": not a network snapshot");
+		}
+		if(map.getInt(4) != VERSION) {
+			throw new IllegalArgumentException(filename + ": written by version " + map.getInt(4)
+					+ ", this reads version " + VERSION);
+		}
+		CRC32C crc = new CRC32C();
+		crc.update(map.slice(CHECKED, map.capacity() - CHECKED));
+		if((int) crc.getValue() != map.getInt(8)) {
+			throw new IllegalArgumentException(filename + ": damaged, checksum doesn't match");
+		}
+
+		int numCities = map.getInt(12);
+		int numEdges = map.getInt(16);
+		int numRequired = map.getInt(20);
+		IntBuffer ints = map.slice(HEADER, map.capacity() - HEADER).asIntBuffer();
+		int[] delays = new int[numCities];
+		int[] rowStarts = new int[numCities + 1];
+		int[] targets = new int[numEdges];
+		int[] minutes = new int[numEdges];
+		requiredFrom = new int[numRequired];
+		requiredTo = new int[numRequired];
+		ints.get(delays).get(rowStarts).get(targets).get(minutes).get(requiredFrom).get(requiredTo);
+
+		ByteBuffer rest = map.position(HEADER + 4 * ints.position());
+		String[] names = new String[numCities];
+		for(int city = 0; city < numCities; city++) {
+			byte[] name = new byte[rest.getInt()];
+			rest.get(name);
+			names[city] = new String(name, StandardCharsets.UTF_8);
+		}
+		network = CompiledGraph.fromRows(names, delays, rowStarts, targets, minutes);
+	}
+
+	/**
+	 * Gives the network read
+	 * @return CompiledGraph
+	 */
+	public CompiledGraph getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Gives the city each required flight departs
+	 * @return array of city ids
+	 */
+	public int[] getRequiredFrom() {
+		return requiredFrom;
+	}
+
+	/**
+	 * Gives the city each required flight arrives
+	 * @return array of city ids
+	 */
+	public int[] getRequiredTo() {
+		return requiredTo;
+	}
+}
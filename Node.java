@@ -2,6 +2,7 @@ import java.util.LinkedList;
 
 public class Node {
 	private String cityName;
+	private int id;
 	private int delay;
 	private LinkedList<Flight> neighbours;
 	
@@ -28,6 +29,22 @@ public class Node {
 		return delay;
 	}
 	
+	/**
+	 * Gives the id of this city, its position in the Graph
+	 * @return integer
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Sets the id of this city
+	 * @param integer position in the Graph
+	 */
+	public void setId(int index) {
+		id = index;
+	}
+	
 	/**
 	 * Gives the city name of this Node
 	 * @return String
@@ -70,14 +87,13 @@ public class Node {
 	 * and this city as the "from" Node
 	 */
 	public Flight getEdge(Node neighbour) {
-		Flight found = null;
 		for(Flight current: neighbours) {
-			if(current.getOtherEnd(this).equals(neighbour)) {
-				found = current;
+			if(current.getTo() == neighbour) {
+				return current;
 			}
 		}
 		
-		return found;
+		return null;
 	}
 	
 	
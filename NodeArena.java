@@ -0,0 +1,405 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Search nodes stored as columns of primitives instead of as State
+ * objects. A node is an index into the columns: its city, cost so far,
+ * heuristic, parent node, the edge taken to reach it, how many required
+ * flights it covers and where its Coverage key starts in the key pool.
+ *
+ * A child that covers no new flight shares its parent's key, so keys
+ * are only written when a required flight is flown. Columns are split
+ * into pages of PAGE nodes and a new page is added when the last one
+ * fills, so nothing is ever copied and adding a node allocates nothing
+ * the rest of the time. Pages can live off the heap in direct buffers
+ * instead, which keeps a large search out of the garbage collector's
+ * way entirely
+ */
+public class NodeArena {
+	private static final int SHIFT = 12;
+	private static final int PAGE = 1 << SHIFT;
+	private static final int MASK = PAGE - 1;
+
+	// WHERE EACH COLUMN STARTS IN A PAGE
+	private static final int CITY = 0;
+	private static final int COST = PAGE;
+	private static final int HEUR = 2 * PAGE;
+	private static final int PARENT = 3 * PAGE;
+	private static final int EDGE = 4 * PAGE;
+	private static final int COVERED = 5 * PAGE;
+	private static final int KEY = 6 * PAGE;
+	private static final int PAGE_INTS = 7 * PAGE;
+
+	private View view;
+	private boolean offHeap;
+	private int numFlights;
+	private int numWords;
+	private int size;
+	private int numKeys;
+
+	// ONE OR THE OTHER IS USED
+	private int[][] pages;
+	private long[][] keyPages;
+	private IntBuffer[] buffers;
+	private LongBuffer[] keyBuffers;
+
+	/**
+	 * @param integer number of required flights in the coverages stored
+	 * @param true to keep the nodes in direct buffers off the heap
+	 */
+	public NodeArena(int flights, boolean direct) {
+		offHeap = direct;
+		numFlights = flights;
+		numWords = (numFlights + 63) >>> 6;
+		view = new View();
+		if(offHeap) {
+			buffers = new IntBuffer[16];
+			keyBuffers = new LongBuffer[16];
+		} else {
+			pages = new int[16][];
+			keyPages = new long[16][];
+		}
+	}
+
+	/**
+	 * Gives number of nodes stored
+	 * @return integer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives number of words in each Coverage key
+	 * @return integer
+	 */
+	public int numWords() {
+		return numWords;
+	}
+
+	/**
+	 * Adds the node a search starts from, covering nothing
+	 * @param integer city id
+	 * @param integer heuristic
+	 * @return integer node
+	 */
+	public int addRoot(int city, int h) {
+		int node = addNode(city, 0, h, -1, -1, 0);
+		set(KEY, node, newKey());
+		return node;
+	}
+
+	/**
+	 * Adds a node reached from another by one edge
+	 * @param integer parent node
+	 * @param integer edge id taken
+	 * @param integer city id arrived at
+	 * @param integer cost so far
+	 * @param integer heuristic
+	 * @param integer slot of the required flight the edge covers.
+	 * -1 if it covers none and the parent's key is shared
+	 * @return integer node
+	 */
+	public int addChild(int parent, int edge, int city, int cost, int h, int slot) {
+		int covered = get(COVERED, parent);
+		int node = addNode(city, cost, h, parent, edge, slot == -1 ? covered : covered + 1);
+
+		if(slot == -1) {
+			set(KEY, node, get(KEY, parent));
+		} else {
+			int from = get(KEY, parent);
+			int key = newKey();
+			for(int i = 0; i < numWords; i++) {
+				setWord(key, i, getWord(from, i));
+			}
+			setWord(key, slot >>> 6, getWord(key, slot >>> 6) | 1L << slot);
+			set(KEY, node, key);
+		}
+		return node;
+	}
+
+	/**
+	 * Gives the city id of a node
+	 * @param integer node
+	 * @return integer
+	 */
+	public int getCity(int node) {
+		return get(CITY, node);
+	}
+
+	/**
+	 * Gives the cost so far of a node
+	 * @param integer node
+	 * @return integer minutes
+	 */
+	public int getCost(int node) {
+		return get(COST, node);
+	}
+
+	/**
+	 * Gives the heuristic of a node
+	 * @param integer node
+	 * @return integer minutes
+	 */
+	public int getHeur(int node) {
+		return get(HEUR, node);
+	}
+
+	/**
+	 * Sets the heuristic of a node
+	 * @param integer node
+	 * @param integer minutes
+	 */
+	public void setHeur(int node, int h) {
+		set(HEUR, node, h);
+	}
+
+	/**
+	 * Gives the f-cost of a node
+	 * @param integer node
+	 * @return integer minutes
+	 */
+	public int getF(int node) {
+		return get(COST, node) + get(HEUR, node);
+	}
+
+	/**
+	 * Gives the node a node was reached from
+	 * @param integer node
+	 * @return integer node. -1 at the root
+	 */
+	public int getParent(int node) {
+		return get(PARENT, node);
+	}
+
+	/**
+	 * Gives the edge taken to reach a node
+	 * @param integer node
+	 * @return integer edge id. -1 at the root
+	 */
+	public int getLast(int node) {
+		return get(EDGE, node);
+	}
+
+	/**
+	 * Gives number of required flights a node covers
+	 * @param integer node
+	 * @return integer
+	 */
+	public int numCovered(int node) {
+		return get(COVERED, node);
+	}
+
+	/**
+	 * Checks if the last edge to a node covered a required
+	 * flight that hadn't been covered yet
+	 * @param integer node
+	 * @return true if it did. false otherwise or at the root
+	 */
+	public boolean coversNewFlight(int node) {
+		int parent = get(PARENT, node);
+		return parent != -1 && get(COVERED, node) > get(COVERED, parent);
+	}
+
+	/**
+	 * Checks if a node has flown the required flight in a slot
+	 * @param integer node
+	 * @param integer slot of the required flight
+	 * @return true if covered. false otherwise
+	 */
+	public boolean isCovered(int node, int slot) {
+		return (getWord(get(KEY, node), slot >>> 6) & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Copies the Coverage key of a node into an array
+	 * @param integer node
+	 * @param array of at least numWords longs
+	 */
+	public void copyKey(int node, long[] key) {
+		int from = get(KEY, node);
+		for(int i = 0; i < numWords; i++) {
+			key[i] = getWord(from, i);
+		}
+	}
+
+	/**
+	 * Rebuilds the Coverage of a node as an object
+	 * @param integer node
+	 * @return Coverage
+	 */
+	public Coverage getCoverage(int node) {
+		Coverage covered = new Coverage(numFlights);
+		for(int slot = 0; slot < numFlights; slot++) {
+			if(isCovered(node, slot)) {
+				covered = covered.cover(slot);
+			}
+		}
+		return covered;
+	}
+
+	/**
+	 * Shows a node the way a heuristic sees it. The same View is
+	 * handed out every time, moved to the latest node asked for
+	 * @param integer node
+	 * @return SearchNode of the node
+	 */
+	public SearchNode view(int node) {
+		view.node = node;
+		return view;
+	}
+
+	/**
+	 * Rebuilds the path to a node by following the parents
+	 * back to the root
+	 * @param integer node
+	 * @return array of the edge ids taken, first flight first
+	 */
+	public int[] getPath(int node) {
+		int length = 0;
+		for(int at = node; get(PARENT, at) != -1; at = get(PARENT, at)) {
+			length++;
+		}
+		int[] path = new int[length];
+		for(int at = node; get(PARENT, at) != -1; at = get(PARENT, at)) {
+			path[--length] = get(EDGE, at);
+		}
+		return path;
+	}
+
+	private int addNode(int city, int cost, int h, int parent, int edge, int covered) {
+		int node = size++;
+		if((node & MASK) == 0) {
+			addPage(node >>> SHIFT);
+		}
+		set(CITY, node, city);
+		set(COST, node, cost);
+		set(HEUR, node, h);
+		set(PARENT, node, parent);
+		set(EDGE, node, edge);
+		set(COVERED, node, covered);
+		return node;
+	}
+
+	/**
+	 * Takes the next key, which on a new page is already all zero
+	 * @return integer key id
+	 */
+	private int newKey() {
+		int key = numKeys++;
+		if((key & MASK) == 0) {
+			addKeyPage(key >>> SHIFT);
+		}
+		return key;
+	}
+
+	private int get(int column, int node) {
+		int at = column + (node & MASK);
+		return offHeap ? buffers[node >>> SHIFT].get(at) : pages[node >>> SHIFT][at];
+	}
+
+	private void set(int column, int node, int value) {
+		int at = column + (node & MASK);
+		if(offHeap) {
+			buffers[node >>> SHIFT].put(at, value);
+		} else {
+			pages[node >>> SHIFT][at] = value;
+		}
+	}
+
+	private long getWord(int key, int word) {
+		int at = (key & MASK) * numWords + word;
+		return offHeap ? keyBuffers[key >>> SHIFT].get(at) : keyPages[key >>> SHIFT][at];
+	}
+
+	private void setWord(int key, int word, long value) {
+		int at = (key & MASK) * numWords + word;
+		if(offHeap) {
+			keyBuffers[key >>> SHIFT].put(at, value);
+		} else {
+			keyPages[key >>> SHIFT][at] = value;
+		}
+	}
+
+	private void addPage(int page) {
+		if(offHeap) {
+			if(page == buffers.length) {
+				buffers = Arrays.copyOf(buffers, page * 2);
+			}
+			buffers[page] = allocate(PAGE_INTS * 4).asIntBuffer();
+		} else {
+			if(page == pages.length) {
+				pages = Arrays.copyOf(pages, page * 2);
+			}
+			pages[page] = new int[PAGE_INTS];
+		}
+	}
+
+	private void addKeyPage(int page) {
+		if(offHeap) {
+			if(page == keyBuffers.length) {
+				keyBuffers = Arrays.copyOf(keyBuffers, page * 2);
+			}
+			keyBuffers[page] = allocate(PAGE * numWords * 8).asLongBuffer();
+		} else {
+			if(page == keyPages.length) {
+				keyPages = Arrays.copyOf(keyPages, page * 2);
+			}
+			keyPages[page] = new long[PAGE * numWords];
+		}
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * One node of the arena as a SearchNode
+	 */
+	private class View implements SearchNode {
+		private int node;
+
+		@Override
+		public int getLocation() {
+			return getCity(node);
+		}
+
+		@Override
+		public boolean isCovered(int slot) {
+			return NodeArena.this.isCovered(node, slot);
+		}
+
+		@Override
+		public int numFlightsCovered() {
+			return numCovered(node);
+		}
+
+		@Override
+		public long getCoverageWord(int index) {
+			return getWord(get(KEY, node), index);
+		}
+
+		@Override
+		public Coverage getCoverage() {
+			return NodeArena.this.getCoverage(node);
+		}
+
+		@Override
+		public int getHeur() {
+			return NodeArena.this.getHeur(node);
+		}
+
+		@Override
+		public int getLast() {
+			return NodeArena.this.getLast(node);
+		}
+
+		@Override
+		public boolean coversNewFlight() {
+			return NodeArena.this.coversNewFlight(node);
+		}
+	}
+}
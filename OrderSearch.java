@@ -0,0 +1,139 @@
+/**
+ * A* over the order the required flights are flown in, rather than
+ * over cities. Each step takes the cheapest path from where the route
+ * is to the start of one uncovered required flight and then flies it,
+ * so a node has one child per flight left instead of one per edge, and
+ * none of the search is spent on legs that only reposition.
+ *
+ * Nothing is lost by only taking cheapest paths between required
+ * flights: any route can be cut at the first time it flies each one,
+ * and swapping the legs in between for cheapest paths makes it no
+ * dearer while it still flies them all. So the cheapest route over
+ * orders costs the same as the cheapest route over cities, and the
+ * heuristics admissible for one are admissible for the other. Flights
+ * covered on the way along a leg are simply flown again later.
+ *
+ * Nodes are kept in a NodeArena, with the edge of each node being the
+ * required flight it flew, and the legs are expanded into edges from
+ * the ShortestPaths table once the goal is found
+ */
+public class OrderSearch {
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private IStrategy calcH;
+	private SearchMetrics metrics;
+	private int numFlights;
+
+	/**
+	 * @param CompiledGraph to search
+	 * @param index of required flights
+	 * @param ShortestPaths of the network, which include the delays
+	 * @param heuristic strategy, which must be admissible
+	 * @param SearchMetrics to count into
+	 */
+	public OrderSearch(CompiledGraph map, FlightIndex flights, ShortestPaths table, IStrategy heuristic,
+			SearchMetrics counts) {
+		network = map;
+		required = flights;
+		paths = table;
+		calcH = heuristic;
+		metrics = counts;
+		numFlights = required.size();
+	}
+
+	/**
+	 * Finds the optimal route from the given city which contains all
+	 * the flights requested
+	 * @precondition at least one flight is required
+	 * @param integer city id to start from
+	 * @param boolean true to keep the nodes off the heap
+	 * @return the Goal State. null if no route exists
+	 */
+	public State search(int start, boolean offHeap) {
+		// COST DOUBLED, PLUS ONE ONCE THE STATE HAS EVER BEEN EXPANDED
+		StateTable bestG = new StateTable(numFlights);
+		NodeArena nodes = new NodeArena(numFlights, offHeap);
+		BucketQueue toVisit = new BucketQueue();
+		long[] key = new long[nodes.numWords()];
+		int numClosed = 0;
+
+		int initial = nodes.addRoot(start, 0);
+		nodes.setHeur(initial, calcH.calcHCost(nodes.view(initial)));
+		metrics.startCounting(true);
+		metrics.setRootH(nodes.getHeur(initial));
+		nodes.copyKey(initial, key);
+		bestG.put(start, key, 0);
+		toVisit.add(initial, nodes.getF(initial));
+
+		while(!toVisit.isEmpty()) {
+			int current = toVisit.poll();
+			int city = nodes.getCity(current);
+			int cost = nodes.getCost(current);
+
+			// A CHEAPER COPY WAS ADDED AFTER THIS ONE
+			nodes.copyKey(current, key);
+			int seen = bestG.get(city, key);
+			if(cost > seen / 2) {
+				metrics.countPruned();
+				continue;
+			}
+			if(nodes.numCovered(current) == numFlights) {
+				return State.buildRoute(network, required, start, paths.expand(start, nodes.getPath(current)));
+			}
+			// A STATE EXPANDED AGAIN IS ONLY CLOSED ONCE
+			if(seen % 2 == 0) {
+				numClosed++;
+			} else {
+				metrics.countReopened();
+			}
+			bestG.put(city, key, cost * 2 + 1);
+			metrics.seenClosed(numClosed);
+			metrics.countExpanded();
+
+			for(int slot = 0; slot < numFlights; slot++) {
+				if(nodes.isCovered(current, slot)) {
+					continue;
+				}
+				int leg = paths.getCost(city, required.getFrom(slot));
+				if(leg >= ShortestPaths.UNREACHABLE) {
+					continue;
+				}
+				int child = required.getTo(slot);
+				int costToAdd = cost + leg + required.getFlightTime(slot) + network.getDelay(child);
+
+				// NO DELAY AFTER LANDING THE LAST FLIGHT
+				if(nodes.numCovered(current) + 1 == numFlights) {
+					costToAdd -= network.getDelay(child);
+				}
+				metrics.countGenerated();
+
+				// ONLY KEPT IF IT IS THE CHEAPEST WAY TO THE STATE YET
+				key[slot >>> 6] ^= 1L << slot;
+				seen = bestG.get(child, key);
+				boolean cheaper = seen == -1 || costToAdd < seen / 2;
+				if(cheaper) {
+					bestG.put(child, key, costToAdd * 2 + (seen == -1 ? 0 : seen % 2));
+				}
+				key[slot >>> 6] ^= 1L << slot;
+				if(!cheaper) {
+					metrics.countPruned();
+					continue;
+				}
+
+				int node = nodes.addChild(current, required.getEdge(slot), child, costToAdd, 
+						nodes.getHeur(current), slot);
+				nodes.setHeur(node, calcH.calcHCost(nodes.view(node)));
+
+				// NO ROUTE FROM HERE COVERS THE FLIGHTS LEFT
+				if(nodes.getHeur(node) >= ShortestPaths.UNREACHABLE) {
+					metrics.countPruned();
+					continue;
+				}
+				toVisit.add(node, nodes.getF(node));
+				metrics.seenOpen(toVisit.size());
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,279 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hash distributed A* search (HDA*) over several threads.
+ *
+ * Every State belongs to one worker, picked by hashing its city and
+ * Coverage, so all copies of a state meet at the same worker. Each
+ * worker has its own open list, its own table of the cheapest cost
+ * seen for its states and its own heuristic. Children belonging to
+ * another worker are passed over lock free queues.
+ *
+ * States can arrive out of order so a worker keeps the cheapest cost
+ * per state and reopens a state when a cheaper copy turns up. Goals
+ * are recorded as they arrive and nothing with an f-cost at least
+ * the best goal's cost is expanded. The search is over once every
+ * worker has run out of such states with no States still in flight,
+ * at which point the best goal is optimal.
+ *
+ * To tell when that is, "work" counts the busy workers plus the
+ * States sent but not yet received. A State is counted before it is
+ * sent and an idle worker counts itself busy again before taking a
+ * State off its queue, so work only reaches zero once nothing is
+ * left anywhere. A worker that fails can't count itself out, so it
+ * records why instead, which stops every other worker, and the search
+ * throws it
+ */
+public class ParallelSearch {
+	private static final int IDLE_SPINS = 100;
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private Supplier<IStrategy> heuristics;
+	private Worker[] workers;
+	private AtomicLong work;
+	private volatile int bestCost;
+	private State bestGoal;
+	private volatile Throwable failure;
+
+	/**
+	 * @param CompiledGraph to search
+	 * @param index of required flights
+	 * @param maker of heuristics, called once per worker since
+	 * heuristics aren't shared between threads
+	 * @param integer number of worker threads
+	 */
+	public ParallelSearch(CompiledGraph map, FlightIndex flights, Supplier<IStrategy> makeHeuristic, int numThreads) {
+		network = map;
+		required = flights;
+		heuristics = makeHeuristic;
+		workers = new Worker[numThreads];
+	}
+
+	/**
+	 * Finds the optimal path which contains all
+	 * the flights requested
+	 * @param integer city id to start from
+	 * @return the Goal State. null if no route exists
+	 * @throws what a worker threw, such as an OutOfMemoryError
+	 */
+	public State search(int start) throws InterruptedException {
+		work = new AtomicLong(workers.length);
+		bestCost = Integer.MAX_VALUE;
+		bestGoal = null;
+		failure = null;
+
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i);
+		}
+		State initial = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+		send(initial);
+
+		Thread[] threads = new Thread[workers.length];
+		for(int i = 0; i < workers.length; i++) {
+			threads[i] = new Thread(workers[i], "search-" + i);
+			threads[i].start();
+		}
+		for(Thread thread: threads) {
+			thread.join();
+		}
+		if(failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if(failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if(failure != null) {
+			throw new IllegalStateException(failure);
+		}
+		return bestGoal;
+	}
+
+	/**
+	 * Gives number of nodes expanded by all workers in the most
+	 * recent search
+	 * @return long
+	 */
+	public long getNumExpansions() {
+		long total = 0;
+		for(Worker worker: workers) {
+			total += worker.expansions;
+		}
+		return total;
+	}
+
+	/**
+	 * Gives the worker a state belongs to
+	 * @return integer worker index
+	 */
+	private int owner(State state) {
+		int h = state.getLocation() * 0x9E3779B9 + state.getCoverage().hashCode();
+		h ^= h >>> 16;
+		return Math.floorMod(h * 0x85EBCA6B, workers.length);
+	}
+
+	/**
+	 * Passes a State to the worker it belongs to
+	 * @param State to send
+	 */
+	private void send(State state) {
+		work.incrementAndGet();
+		workers[owner(state)].inbox.add(state);
+	}
+
+	/**
+	 * Records a goal if it is the cheapest one found so far
+	 * @param goal State
+	 */
+	private synchronized void offerGoal(State goal) {
+		if(goal.getCostSoFar() < bestCost) {
+			bestGoal = goal;
+			bestCost = goal.getCostSoFar();
+		}
+	}
+
+	/**
+	 * Records the first failure of any worker, which stops the others
+	 * @param what the worker threw
+	 */
+	private synchronized void fail(Throwable cause) {
+		if(failure == null) {
+			failure = cause;
+		}
+	}
+
+	private class Worker implements Runnable {
+		private int id;
+		private StateQueue open;
+		private StateTable cheapest;
+		private ConcurrentLinkedQueue<State> inbox;
+		private IStrategy calcH;
+		private long expansions;
+
+		Worker(int index) {
+			id = index;
+			open = new StateQueue();
+			cheapest = new StateTable(required.size());
+			inbox = new ConcurrentLinkedQueue<State>();
+			calcH = heuristics.get();
+			expansions = 0;
+		}
+
+		@Override
+		public void run() {
+			try {
+				expandAll();
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * Expands and passes on States until the search is over
+		 */
+		private void expandAll() {
+			while(failure == null) {
+				State received;
+				while((received = inbox.poll()) != null) {
+					receive(received);
+					work.decrementAndGet();
+				}
+
+				State current = nextToExpand();
+				if(current != null) {
+					expand(current);
+					continue;
+				}
+
+				// IDLE UNTIL MORE STATES ARRIVE OR EVERYONE IS DONE
+				work.decrementAndGet();
+				for(int spins = 0; inbox.isEmpty(); spins++) {
+					if(work.get() == 0 || failure != null) {
+						return;
+					}
+					if(spins < IDLE_SPINS) {
+						Thread.onSpinWait();
+					} else {
+						Thread.yield();
+					}
+				}
+				work.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Takes in a State, dropping it if this worker has already
+		 * seen it as cheap or it can't beat the best goal
+		 */
+		private void receive(State state) {
+			int cost = state.getCostSoFar();
+			int seen = cheapest.get(state.getLocation(), state.getCoverage());
+
+			if(cost >= bestCost || (seen != -1 && seen <= cost)) {
+				return;
+			}
+			cheapest.put(state.getLocation(), state.getCoverage(), cost);
+
+			if(state.numFlightsCovered() == required.size()) {
+				offerGoal(state);
+				return;
+			}
+			state.updateH(calcH.calcHCost(state));
+
+			// NO ROUTE FROM HERE COVERS THE FLIGHTS LEFT
+			if(state.getHeur() < ShortestPaths.UNREACHABLE && state.calcF() < bestCost) {
+				open.add(state);
+			}
+		}
+
+		/**
+		 * Gives the next open State still worth expanding
+		 * @return State. null if there are none
+		 */
+		private State nextToExpand() {
+			while(!open.isEmpty()) {
+				State current = open.poll();
+				int seen = cheapest.get(current.getLocation(), current.getCoverage());
+
+				// A CHEAPER COPY HAS BEEN OPENED SINCE
+				if(current.getCostSoFar() > seen) {
+					continue;
+				}
+				if(current.calcF() >= bestCost) {
+					// NOTHING LEFT CAN BEAT THE BEST GOAL
+					while(!open.isEmpty()) {
+						open.poll();
+					}
+					return null;
+				}
+				return current;
+			}
+			return null;
+		}
+
+		private void expand(State current) {
+			int city = current.getLocation();
+			expansions++;
+
+			for(int edge = network.edgeStart(city); edge < network.edgeEnd(city); edge++) {
+				int child = network.getTarget(edge);
+				int costToAdd = current.getCostSoFar() + network.getWeight(edge);
+				Coverage covered = required.cover(current.getCoverage(), edge);
+
+				// NO DELAY AFTER LANDING THE LAST FLIGHT
+				if(covered.numCovered() == required.size()) {
+					costToAdd -= network.getDelay(child);
+				}
+
+				State temp = new State(child, current, edge, costToAdd, current.getHeur(), covered);
+				if(owner(temp) == id) {
+					receive(temp);
+				} else {
+					send(temp);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
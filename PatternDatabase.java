@@ -0,0 +1,320 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Lower bound tables for one network, worked out once and kept in a
+ * file which later runs memory map instead of working them out again.
+ *
+ * The file holds the ShortestPaths table of the network and, for a
+ * small pattern of the flights requested most often, the cheapest
+ * cost of flying every subset of the pattern from every city. A route
+ * still has to fly whichever pattern flights it hasn't covered, so
+ * looking that cost up is an admissible heuristic for any request.
+ *
+ * Files start with a version and the fingerprint of the network they
+ * were built for, and are refused by any other version or network.
+ * All numbers are big endian ints:
+ *   magic, version, fingerprint (one long), number of cities,
+ *   number of pattern flights K, K pairs of from and to city ids,
+ *   the shortest path costs, the last edges of the shortest paths,
+ *   then a cost for each city and each subset of the pattern
+ */
+public class PatternDatabase {
+	private static final int MAGIC = 0x46535044;
+	private static final int VERSION = 1;
+	private static final int HEADER = 24;
+	private static final int MAX_FLIGHTS = 16;
+	private static final int UNREACHABLE = ShortestPaths.UNREACHABLE;
+
+	private int numFlights;
+	private int[] patternFrom;
+	private int[] patternTo;
+	private ShortestPaths paths;
+	private IntBuffer costs;
+
+	private PatternDatabase(int[] from, int[] to, ShortestPaths table, IntBuffer subsetCosts) {
+		numFlights = from.length;
+		patternFrom = from;
+		patternTo = to;
+		paths = table;
+		costs = subsetCosts;
+	}
+
+	/**
+	 * Usage: java PatternDatabase inputFile outputFile [--flights=K] [history files]
+	 *
+	 * Builds the tables for the network in the input file. The pattern
+	 * is the K flights requested most often by the input file and any
+	 * history files, which are inputs on the same network
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Usage: java PatternDatabase inputFile outputFile [--flights=K] [history files]");
+			System.exit(1);
+		}
+		int wanted = Integer.parseInt(FlightScheduler.option(args, "flights", "10"));
+		ArrayList<String> inputs = new ArrayList<String>();
+		inputs.add(args[0]);
+		for(int i = 2; i < args.length; i++) {
+			if(!args[i].startsWith("--")) {
+				inputs.add(args[i]);
+			}
+		}
+
+		try {
+			NetworkParser parser = new NetworkParser(args[0]);
+			parser.parse(1);
+			CompiledGraph network = parser.getNetwork();
+			int[][] pattern = mostRequested(network, inputs, wanted);
+
+			long started = System.nanoTime();
+			write(network, new ShortestPaths(network), pattern[0], pattern[1], args[1]);
+			System.out.println(pattern[0].length + " pattern flights over " + network.numCities() + " cities built in "
+					+ (System.nanoTime() - started) / 1000000 + " ms");
+		} catch (IllegalArgumentException e) {
+			System.err.println("Can't build patterns: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Works out the tables for a network and writes them to a file
+	 * @param CompiledGraph
+	 * @param ShortestPaths of the network
+	 * @param city ids each pattern flight departs
+	 * @param city ids each pattern flight arrives
+	 * @param String filename
+	 */
+	public static void write(CompiledGraph network, ShortestPaths table, int[] from, int[] to, String filename)
+			throws IOException {
+		if(from.length > MAX_FLIGHTS) {
+			throw new IllegalArgumentException("At most " + MAX_FLIGHTS + " pattern flights");
+		}
+		int numCities = network.numCities();
+		int[] subsetCosts = subsetCosts(network, table, from, to);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(network.fingerprint());
+			out.writeInt(numCities);
+			out.writeInt(from.length);
+			for(int i = 0; i < from.length; i++) {
+				out.writeInt(from[i]);
+				out.writeInt(to[i]);
+			}
+			for(int cost: table.getCosts()) {
+				out.writeInt(cost);
+			}
+			for(int edge: table.getLastEdges()) {
+				out.writeInt(edge);
+			}
+			for(int cost: subsetCosts) {
+				out.writeInt(cost);
+			}
+		}
+	}
+
+	/**
+	 * Memory maps a file written for the network
+	 * @param String filename
+	 * @param CompiledGraph the file must have been built for
+	 * @return PatternDatabase
+	 * @throws IllegalArgumentException if the file is damaged, from
+	 * another version or built for another network
+	 */
+	public static PatternDatabase load(String filename, CompiledGraph network) throws IOException {
+		MappedByteBuffer map;
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			if(channel.size() < HEADER) {
+				throw new IllegalArgumentException(filename + ": not a pattern database");
+			}
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(filename + ": " + channel.size() 
+						+ " bytes is larger than a pattern database can be mapped");
+			}
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(map.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException(filename + ": not a pattern database");
+		}
+		if(map.getInt(4) != VERSION) {
+			throw new IllegalArgumentException(filename + ": written by version " + map.getInt(4)
+					+ ", this reads version " + VERSION);
+		}
+		if(map.getLong(8) != network.fingerprint() || map.getInt(16) != network.numCities()) {
+			throw new IllegalArgumentException(filename + ": built for a different network");
+		}
+		int numCities = map.getInt(16);
+		int count = map.getInt(20);
+		long expected = HEADER + 8L * count + 8L * numCities * numCities + 4L * numCities * (1L << count);
+		if(count < 0 || count > MAX_FLIGHTS || map.capacity() != expected) {
+			throw new IllegalArgumentException(filename + ": damaged, expected " + expected + " bytes");
+		}
+
+		IntBuffer ints = map.position(HEADER).slice().asIntBuffer();
+		int[] from = new int[count];
+		int[] to = new int[count];
+		for(int i = 0; i < count; i++) {
+			from[i] = ints.get();
+			to[i] = ints.get();
+		}
+		int[] dist = new int[ShortestPaths.tableSize(numCities)];
+		int[] via = new int[ShortestPaths.tableSize(numCities)];
+		ints.get(dist);
+		ints.get(via);
+
+		return new PatternDatabase(from, to, new ShortestPaths(network, dist, via), ints.slice());
+	}
+
+	/**
+	 * Gives number of flights in the pattern
+	 * @return integer
+	 */
+	public int numFlights() {
+		return numFlights;
+	}
+
+	/**
+	 * Gives the position of a flight in the pattern
+	 * @param integer city id of departure
+	 * @param integer city id of arrival
+	 * @return integer. -1 if the flight isn't in the pattern
+	 */
+	public int findFlight(int from, int to) {
+		for(int i = 0; i < numFlights; i++) {
+			if(patternFrom[i] == from && patternTo[i] == to) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the cheapest cost of flying a subset of the pattern
+	 * starting from a city, not counting the delay after the last
+	 * flight or the one at the city itself
+	 * @param integer city id
+	 * @param integer subset, bit i set for pattern flight i
+	 * @return integer minutes. UNREACHABLE if it can't be done
+	 */
+	public int getCost(int city, int subset) {
+		return costs.get((city << numFlights) | subset);
+	}
+
+	/**
+	 * Gives the shortest path table read from the file, so nothing
+	 * needs to run Dijkstra again
+	 * @return ShortestPaths
+	 */
+	public ShortestPaths getPaths() {
+		return paths;
+	}
+
+	/**
+	 * Held-Karp over the pattern from every city. Subsets are worked
+	 * out in numeric order so the subset left after each flight is
+	 * always done first
+	 */
+	private static int[] subsetCosts(CompiledGraph network, ShortestPaths table, int[] from, int[] to) {
+		int count = from.length;
+		int numCities = network.numCities();
+		int[] weight = new int[count];
+		int[] cost = new int[numCities << count];
+
+		for(int i = 0; i < count; i++) {
+			weight[i] = cheapestWeight(network, from[i], to[i]);
+		}
+		for(int subset = 1; subset < 1 << count; subset++) {
+			for(int city = 0; city < numCities; city++) {
+				long best = UNREACHABLE;
+
+				for(int i = 0; i < count; i++) {
+					if((subset & (1 << i)) == 0) {
+						continue;
+					}
+					int rest = subset & ~(1 << i);
+					long after;
+					// NO DELAY AFTER LANDING THE LAST FLIGHT
+					if(rest == 0) {
+						after = -network.getDelay(to[i]);
+					} else {
+						after = cost[(to[i] << count) | rest];
+					}
+					long total = (long) table.getCost(city, from[i]) + weight[i] + after;
+					if(table.getCost(city, from[i]) < UNREACHABLE && after < UNREACHABLE && total < best) {
+						best = total;
+					}
+				}
+				cost[(city << count) | subset] = (int) best;
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Gives the cheapest weight of any edge flying the flight
+	 */
+	private static int cheapestWeight(CompiledGraph network, int from, int to) {
+		int best = -1;
+		for(int edge = network.edgeStart(from); edge < network.edgeEnd(from); edge++) {
+			if(network.getTarget(edge) == to && (best == -1 || network.getWeight(edge) < best)) {
+				best = network.getWeight(edge);
+			}
+		}
+		if(best == -1) {
+			throw new IllegalArgumentException("No flight from " + network.getName(from) + " to " + network.getName(to));
+		}
+		return best;
+	}
+
+	/**
+	 * Counts the flights requested by every input and picks the most
+	 * requested, the first requested first among equals
+	 * @return array of the from city ids and array of the to city ids
+	 */
+	private static int[][] mostRequested(CompiledGraph network, ArrayList<String> inputs, int wanted)
+			throws IOException {
+		HashMap<Long, Integer> counts = new HashMap<Long, Integer>();
+		ArrayList<Long> order = new ArrayList<Long>();
+
+		for(String input: inputs) {
+			NetworkParser parser = new NetworkParser(input);
+			parser.parse(1);
+			CompiledGraph other = parser.getNetwork();
+			int[] from = parser.getRequiredFrom();
+			int[] to = parser.getRequiredTo();
+
+			for(int i = 0; i < from.length; i++) {
+				int a = network.getCity(other.getName(from[i]));
+				int b = network.getCity(other.getName(to[i]));
+				if(a == -1 || b == -1) {
+					throw new IllegalArgumentException(input + ": not on the same network");
+				}
+				long key = (long) a * network.numCities() + b;
+				if(!counts.containsKey(key)) {
+					order.add(key);
+				}
+				counts.merge(key, 1, Integer::sum);
+			}
+		}
+
+		order.sort((x, y) -> counts.get(y) - counts.get(x));
+		int size = Math.min(Math.min(wanted, MAX_FLIGHTS), order.size());
+		int[][] pattern = new int[2][size];
+		for(int i = 0; i < size; i++) {
+			pattern[0][i] = (int) (order.get(i) / network.numCities());
+			pattern[1][i] = (int) (order.get(i) % network.numCities());
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * Heuristic read from a PatternDatabase: the cheapest cost of flying
+ * the pattern flights still uncovered from the current city, or
+ * HeuristicB if that is higher. Both are admissible so the larger is
+ * too. The lookup is one read of the memory mapped file, and HeuristicB
+ * runs on the shortest path table stored with it, so nothing is
+ * worked out per request beyond which slots are in the pattern
+ */
+public class PatternHeuristic implements IStrategy{
+	private PatternDatabase patterns;
+	private FlightIndex required;
+	private HeuristicB fallback;
+	private int[] slotFlight;
+
+	public PatternHeuristic(CompiledGraph map, FlightIndex flights, PatternDatabase database) {
+		patterns = database;
+		required = flights;
+		fallback = new HeuristicB(map, flights, database.getPaths());
+		slotFlight = new int[required.size()];
+
+		for(int slot = 0; slot < required.size(); slot++) {
+			slotFlight[slot] = patterns.findFlight(required.getFrom(slot), required.getTo(slot));
+		}
+	}
+
+	/**
+	 * Calculates the Heuristic for a given state
+	 */
+	@Override
+	public int calcHCost(SearchNode child) {
+		int subset = 0;
+
+		for(int slot = 0; slot < slotFlight.length; slot++) {
+			if(slotFlight[slot] != -1 && !child.isCovered(slot)) {
+				subset |= 1 << slotFlight[slot];
+			}
+		}
+		return Math.max(fallback.calcHCost(child), patterns.getCost(child.getLocation(), subset));
+	}
+}
@@ -0,0 +1,274 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Heuristic from the directed rural postman problem. A route leaves
+ * every city as often as it arrives, except for leaving the city it
+ * is at once more and arriving at the city it ends in once more. The
+ * required flights still uncovered rarely balance like that, so the
+ * route needs extra legs: out of every city where more of them arrive
+ * than leave, and into every city where more leave than arrive.
+ *
+ * The cheapest way to do so is a transportation problem, each surplus
+ * city sending its extra arrivals to deficit cities over ShortestPaths
+ * costs. The current city adds one to send and the end of the route,
+ * wherever it is, takes one, with the delay there taken back since
+ * the last flight doesn't wait it out. The heuristic is the flight
+ * time and landing delay of every uncovered flight plus the cheapest
+ * transportation, and is admissible since the extra legs of any route
+ * are a transportation of the same amounts costing at least as much.
+ *
+ * Only the current city depends on more than the coverage, so the
+ * transportation without it is solved once per coverage and kept,
+ * along with the cost of one more unit from each deficit city to the
+ * end through the solution. Each node then only costs a look at the
+ * deficit cities. A* expands a node's children one after another, and
+ * most of them cover nothing new, so the coverage of the last call is
+ * checked first. The heuristic is not consistent, which A* allows for
+ * by reopening states
+ */
+public class PostmanHeuristic implements IStrategy{
+	private static final long INFINITY = Long.MAX_VALUE / 4;
+	private static final int MAX_BALANCES = 1 << 16;
+
+	private CompiledGraph network;
+	private FlightIndex required;
+	private ShortestPaths paths;
+	private HashMap<Coverage, Balance> balances;
+	private int[] imbalance;
+	private int[] touched;
+	private long[] key;
+	private long[] lastKey;
+	private Balance last;
+
+	public PostmanHeuristic(CompiledGraph map, FlightIndex flights, ShortestPaths table) {
+		network = map;
+		required = flights;
+		paths = table;
+		balances = new HashMap<Coverage, Balance>();
+		imbalance = new int[network.numCities()];
+		touched = new int[2 * required.size()];
+		key = new long[(required.size() + 63) >>> 6];
+		lastKey = new long[key.length];
+	}
+
+	/**
+	 * Calculates the Heuristic for a given state
+	 */
+	@Override
+	public int calcHCost(SearchNode child) {
+		for(int i = 0; i < key.length; i++) {
+			key[i] = child.getCoverageWord(i);
+		}
+		if(last == null || !Arrays.equals(key, lastKey)) {
+			last = balance(child.getCoverage());
+			System.arraycopy(key, 0, lastKey, 0, key.length);
+		}
+		return last.estimate(child.getLocation());
+	}
+
+	/**
+	 * Gives the solved transportation for a coverage, solving it
+	 * the first time. Forgets them all when too many are kept
+	 */
+	private Balance balance(Coverage covered) {
+		Balance found = balances.get(covered);
+		if(found == null) {
+			if(balances.size() >= MAX_BALANCES) {
+				balances.clear();
+			}
+			found = new Balance(covered);
+			balances.put(covered, found);
+		}
+		return found;
+	}
+
+	private long cost(int from, int to) {
+		return paths.getCost(from, to);
+	}
+
+	/**
+	 * The transportation for one coverage
+	 */
+	private class Balance {
+		private int numLeft;
+		private long base;
+		private int[] deficit;
+		private long[] toEnd;
+
+		Balance(Coverage covered) {
+			int numTouched = 0;
+			for(int slot = 0; slot < required.size(); slot++) {
+				if(covered.isCovered(slot)) {
+					continue;
+				}
+				numLeft++;
+				base += required.getFlightTime(slot) + network.getDelay(required.getTo(slot));
+				touched[numTouched++] = required.getFrom(slot);
+				touched[numTouched++] = required.getTo(slot);
+				imbalance[required.getFrom(slot)]++;
+				imbalance[required.getTo(slot)]--;
+			}
+
+			int[] surplus = new int[numTouched];
+			int[] toSend = new int[numTouched];
+			int[] toTake = new int[numTouched];
+			deficit = new int[numTouched];
+			int numSurplus = 0;
+			int numDeficit = 0;
+			// A CITY MAY BE LISTED MORE THAN ONCE BUT IS RESET THE FIRST TIME
+			for(int i = 0; i < numTouched; i++) {
+				int city = touched[i];
+				if(imbalance[city] < 0) {
+					surplus[numSurplus] = city;
+					toSend[numSurplus++] = -imbalance[city];
+				} else if(imbalance[city] > 0) {
+					deficit[numDeficit] = city;
+					toTake[numDeficit++] = imbalance[city];
+				}
+				imbalance[city] = 0;
+			}
+			surplus = Arrays.copyOf(surplus, numSurplus);
+			deficit = Arrays.copyOf(deficit, numDeficit);
+
+			int[][] flow = new int[numSurplus][numDeficit];
+			base += transport(surplus, toSend, toTake, flow);
+			toEnd = costsToEnd(surplus, flow);
+		}
+
+		/**
+		 * Gives the heuristic at a city with this coverage
+		 * @param integer city id
+		 * @return integer minutes
+		 */
+		int estimate(int city) {
+			if(numLeft == 0) {
+				return 0;
+			}
+			// THE ROUTE ENDS HERE, OR THIS CITY'S UNIT FILLS A DEFICIT
+			long best = -network.getDelay(city);
+			for(int j = 0; j < deficit.length; j++) {
+				best = Math.min(best, cost(city, deficit[j]) + toEnd[j]);
+			}
+			return (int) Math.max(0, Math.min(base + best, ShortestPaths.UNREACHABLE));
+		}
+
+		/**
+		 * Solves the transportation by sending along the cheapest
+		 * path left each time, found with Bellman-Ford since paths
+		 * may take flow back. Every surplus city can send to every
+		 * deficit city and both add up to the same
+		 * @param array of surplus city ids
+		 * @param array of how much each surplus city sends
+		 * @param array of how much each deficit city takes
+		 * @param array filled in with how much goes from each surplus
+		 * city to each deficit city
+		 * @return long cost of the transportation
+		 */
+		private long transport(int[] surplus, int[] toSend, int[] toTake, int[][] flow) {
+			int numSurplus = surplus.length;
+			int numDeficit = deficit.length;
+			long[] reachS = new long[numSurplus];
+			long[] reachD = new long[numDeficit];
+			int[] fromS = new int[numSurplus];
+			int[] fromD = new int[numDeficit];
+			long total = 0;
+
+			while(true) {
+				for(int i = 0; i < numSurplus; i++) {
+					reachS[i] = toSend[i] > 0 ? 0 : INFINITY;
+					fromS[i] = -1;
+				}
+				Arrays.fill(reachD, INFINITY);
+				boolean changed = true;
+				while(changed) {
+					changed = false;
+					for(int i = 0; i < numSurplus; i++) {
+						for(int j = 0; j < numDeficit; j++) {
+							if(reachS[i] < INFINITY && reachS[i] + cost(surplus[i], deficit[j]) < reachD[j]) {
+								reachD[j] = reachS[i] + cost(surplus[i], deficit[j]);
+								fromD[j] = i;
+								changed = true;
+							}
+							if(flow[i][j] > 0 && reachD[j] < INFINITY
+									&& reachD[j] - cost(surplus[i], deficit[j]) < reachS[i]) {
+								reachS[i] = reachD[j] - cost(surplus[i], deficit[j]);
+								fromS[i] = j;
+								changed = true;
+							}
+						}
+					}
+				}
+
+				int sink = -1;
+				for(int j = 0; j < numDeficit; j++) {
+					if(toTake[j] > 0 && (sink == -1 || reachD[j] < reachD[sink])) {
+						sink = j;
+					}
+				}
+				if(sink == -1) {
+					return total;
+				}
+
+				// AS MUCH AS THE PATH CAN CARRY
+				int amount = toTake[sink];
+				int j = sink;
+				int i = fromD[j];
+				while(fromS[i] != -1) {
+					j = fromS[i];
+					amount = Math.min(amount, flow[i][j]);
+					i = fromD[j];
+				}
+				amount = Math.min(amount, toSend[i]);
+
+				toSend[i] -= amount;
+				toTake[sink] -= amount;
+				total += amount * reachD[sink];
+				j = sink;
+				i = fromD[j];
+				flow[i][j] += amount;
+				while(fromS[i] != -1) {
+					j = fromS[i];
+					flow[i][j] -= amount;
+					i = fromD[j];
+					flow[i][j] += amount;
+				}
+			}
+		}
+
+		/**
+		 * Works out what one more unit arriving at each deficit city
+		 * costs to get to the end of the route: taking back some flow
+		 * from a surplus city, which then either ends the route or
+		 * sends it on to another deficit city
+		 * @return array of costs, one per deficit city
+		 */
+		private long[] costsToEnd(int[] surplus, int[][] flow) {
+			long[] endS = new long[surplus.length];
+			long[] endD = new long[deficit.length];
+			for(int i = 0; i < surplus.length; i++) {
+				endS[i] = -network.getDelay(surplus[i]);
+			}
+			Arrays.fill(endD, INFINITY);
+
+			boolean changed = true;
+			while(changed) {
+				changed = false;
+				for(int i = 0; i < surplus.length; i++) {
+					for(int j = 0; j < deficit.length; j++) {
+						if(flow[i][j] > 0 && endS[i] < INFINITY
+								&& endS[i] - cost(surplus[i], deficit[j]) < endD[j]) {
+							endD[j] = endS[i] - cost(surplus[i], deficit[j]);
+							changed = true;
+						}
+						if(endD[j] < INFINITY && cost(surplus[i], deficit[j]) + endD[j] < endS[i]) {
+							endS[i] = cost(surplus[i], deficit[j]) + endD[j];
+							changed = true;
+						}
+					}
+				}
+			}
+			return endD;
+		}
+	}
+}
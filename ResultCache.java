@@ -0,0 +1,329 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Remembers the routes found for requests so a request seen before is
+ * answered without searching. Requests are keyed by a canonical form:
+ * the network's fingerprint, the start city and the required flights
+ * sorted, so the same flights asked for in any order share one entry.
+ *
+ * Routes are kept in memory, least recently used forgotten first, and
+ * optionally in a directory with one file per request under a folder
+ * named after the network's fingerprint. Starting on a network with a
+ * different fingerprint forgets the routes of the old one in memory.
+ * Folders of other networks are left as they are and never read.
+ *
+ * Safe to share between threads
+ */
+public class ResultCache {
+	private static final int MAGIC = 0x46535243;
+	private static final int VERSION = 1;
+	private static final int MAX_ROUTE = 1 << 24;
+
+	private long fingerprint;
+	private int numCities;
+	private File folder;
+	private LinkedHashMap<Key, int[]> routes;
+	private long hits;
+	private long diskHits;
+	private long misses;
+	private long hitNanos;
+	private long missNanos;
+
+	/**
+	 * @param CompiledGraph the routes are on
+	 * @param integer most routes kept in memory
+	 * @param String directory to keep routes in as well. null for none
+	 */
+	public ResultCache(CompiledGraph network, final int capacity, String directory) throws IOException {
+		routes = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+				return size() > capacity;
+			}
+		};
+		if(directory != null) {
+			folder = new File(directory);
+		}
+		useNetwork(network);
+	}
+
+	/**
+	 * Moves the cache to a network. If its fingerprint differs from
+	 * the one before every route in memory is forgotten
+	 * @param CompiledGraph
+	 */
+	public synchronized void useNetwork(CompiledGraph network) throws IOException {
+		long changed = network.fingerprint();
+		if(changed != fingerprint) {
+			routes.clear();
+		}
+		fingerprint = changed;
+		numCities = network.numCities();
+		if(folder == null) {
+			return;
+		}
+
+		Files.createDirectories(folder.toPath().resolve(Long.toHexString(fingerprint)));
+	}
+
+	/**
+	 * Gives the canonical key of a request
+	 * @param integer city id the route starts from
+	 * @param index of required flights
+	 * @return Key
+	 */
+	public synchronized Key key(int start, FlightIndex required) {
+		long[] flights = new long[required.size()];
+		for(int slot = 0; slot < required.size(); slot++) {
+			flights[slot] = (long) required.getFrom(slot) * numCities + required.getTo(slot);
+		}
+		Arrays.sort(flights);
+		return new Key(fingerprint, start, flights);
+	}
+
+	/**
+	 * Looks a request up, in memory and then on disk
+	 * @param Key of the request
+	 * @return array of the edge ids of its route. null if not known
+	 */
+	public int[] get(Key key) {
+		return get(key, route -> route);
+	}
+
+	/**
+	 * Looks a request up, in memory and then on disk, and rebuilds
+	 * its route. A route the rebuild turns down is forgotten and the
+	 * lookup counted as a miss
+	 * @param Key of the request
+	 * @param rebuilder of a route from its edge ids, giving null if
+	 * the route can't be used
+	 * @return what the route was rebuilt into. null if not known
+	 */
+	public <T> T get(Key key, Function<int[], T> rebuild) {
+		long started = System.nanoTime();
+		int[] route;
+
+		synchronized(this) {
+			route = routes.get(key);
+		}
+		boolean fromDisk = false;
+		if(route == null && folder != null) {
+			route = read(key);
+			fromDisk = route != null;
+		}
+		T rebuilt = route == null ? null : rebuild.apply(route);
+
+		synchronized(this) {
+			if(rebuilt == null) {
+				if(route != null && !fromDisk) {
+					routes.remove(key, route);
+				}
+				misses++;
+				missNanos += System.nanoTime() - started;
+				return null;
+			}
+			if(fromDisk) {
+				routes.put(key, route);
+				diskHits++;
+			}
+			hits++;
+			hitNanos += System.nanoTime() - started;
+		}
+		return rebuilt;
+	}
+
+	/**
+	 * Remembers the route of a request
+	 * @param Key of the request
+	 * @param array of the edge ids of its route
+	 */
+	public void put(Key key, int[] route) {
+		synchronized(this) {
+			if(key.fingerprint != fingerprint) {
+				return;
+			}
+			routes.put(key, route);
+		}
+		if(folder != null) {
+			write(key, route);
+		}
+	}
+
+	/**
+	 * Gives number of lookups answered, from memory or disk
+	 * @return long
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gives number of lookups answered from disk
+	 * @return long
+	 */
+	public synchronized long getDiskHits() {
+		return diskHits;
+	}
+
+	/**
+	 * Gives number of lookups not answered
+	 * @return long
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gives share of lookups answered
+	 * @return double between 0 and 1. 0 before any lookup
+	 */
+	public synchronized double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Gives the average time a lookup which was answered took
+	 * @return double microseconds. 0 before any hit
+	 */
+	public synchronized double getHitMicros() {
+		return hits == 0 ? 0 : hitNanos / 1000.0 / hits;
+	}
+
+	/**
+	 * Gives the average time a lookup which wasn't answered took
+	 * @return double microseconds. 0 before any miss
+	 */
+	public synchronized double getMissMicros() {
+		return misses == 0 ? 0 : missNanos / 1000.0 / misses;
+	}
+
+	/**
+	 * Gives number of routes in memory
+	 * @return integer
+	 */
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	private File fileFor(Key key) {
+		return new File(new File(folder, Long.toHexString(key.fingerprint)), Long.toHexString(key.hash()) + ".route");
+	}
+
+	/**
+	 * Reads a route from disk, ignoring files which are damaged or
+	 * were written for another request with the same hash
+	 */
+	private int[] read(Key key) {
+		File file = fileFor(key);
+		if(!file.exists()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key.fingerprint
+					|| in.readInt() != key.start || in.readInt() != key.flights.length) {
+				return null;
+			}
+			for(long flight: key.flights) {
+				if(in.readLong() != flight) {
+					return null;
+				}
+			}
+			int length = in.readInt();
+			if(length < 0 || length > MAX_ROUTE) {
+				return null;
+			}
+			int[] route = new int[length];
+			for(int i = 0; i < route.length; i++) {
+				route[i] = in.readInt();
+			}
+			return route;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a route to disk under a temporary name and then renames
+	 * it, so a file is never seen half written. A failed write only
+	 * means the route isn't on disk
+	 */
+	private void write(Key key, int[] route) {
+		File file = fileFor(key);
+		try {
+			File temp = File.createTempFile("route", ".tmp", file.getParentFile());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(key.fingerprint);
+				out.writeInt(key.start);
+				out.writeInt(key.flights.length);
+				for(long flight: key.flights) {
+					out.writeLong(flight);
+				}
+				out.writeInt(route.length);
+				for(int edge: route) {
+					out.writeInt(edge);
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("result cache: can't write " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Canonical form of a request
+	 */
+	public static class Key {
+		private long fingerprint;
+		private int start;
+		private long[] flights;
+
+		Key(long network, int city, long[] sorted) {
+			fingerprint = network;
+			start = city;
+			flights = sorted;
+		}
+
+		private long hash() {
+			long h = fingerprint ^ start * 0x9E3779B97F4A7C15L;
+			for(long flight: flights) {
+				h = (h ^ flight) * 0xC2B2AE3D27D4EB4FL;
+				h ^= h >>> 31;
+			}
+			return h;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = hash();
+			return (int) (h ^ (h >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return fingerprint == key.fingerprint && start == key.start && Arrays.equals(flights, key.flights);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scheduler over a grid of required flight counts, maximum
+ * heap sizes and thread counts, each run in a JVM of its own, and
+ * writes a report of how each run went.
+ *
+ * Inputs are made by the InstanceGenerator. Every run records the
+ * wall time of the whole JVM as "time" would, the time spent solving,
+ * the nodes expanded, the cost found, the peak heap used, the time
+ * spent in garbage collection and whether it ran out of memory, time
+ * or failed some other way.
+ *
+ * Given thread counts, every run also gets a speedup, the solve time
+ * of the fewest threads on the same input and heap over its own, so
+ * hda can be drawn as a speedup curve.
+ *
+ * The report is markdown if its name ends in .md and CSV otherwise.
+ * Options the harness doesn't know are passed on to the scheduler,
+ * so the engine and heuristic can be chosen as usual
+ */
+public class ScalingHarness {
+	private static final String PROBE = "--probe";
+	private static final String RESULT = "probe:";
+	private static final String[] OWN_OPTIONS = { "mode", "cities", "density", "flights", "heaps", "threads", "seed", "timeout" };
+	private static final String[] COLUMNS = { "mode", "cities", "flights", "heap", "threads", "status", "wall_ms",
+			"solve_ms", "speedup", "expanded", "cost", "peak_heap_kb", "gc_ms" };
+
+	/**
+	 * Usage: java ScalingHarness report.csv|report.md [--mode=random|backandforth]
+	 *        [--cities=n] [--density=percent] [--flights=1,2,...] [--heaps=2m,4m,...]
+	 *        [--threads=1,2,...] [--seed=n] [--timeout=seconds] [scheduler options]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length > 0 && args[0].equals(PROBE)) {
+			probe(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+
+		String mode = FlightScheduler.option(args, "mode", InstanceGenerator.BACK_AND_FORTH);
+		int cities = Integer.parseInt(FlightScheduler.option(args, "cities", "40"));
+		int density = Integer.parseInt(FlightScheduler.option(args, "density", "10"));
+		String[] flights = FlightScheduler.option(args, "flights", "1,2,4,6,8").split(",");
+		String[] heaps = FlightScheduler.option(args, "heaps", "2m,4m,8m,64m").split(",");
+		String[] threads = FlightScheduler.option(args, "threads", "").split(",");
+		long seed = Long.parseLong(FlightScheduler.option(args, "seed", "1"));
+		int timeout = Integer.parseInt(FlightScheduler.option(args, "timeout", "120"));
+		List<String> passOn = schedulerOptions(args);
+
+		File inputs = Files.createTempDirectory("instances").toFile();
+		ArrayList<String[]> rows = new ArrayList<String[]>();
+
+		for(String numFlights: flights) {
+			File input = new File(inputs, "flights" + numFlights + ".txt");
+			new InstanceGenerator(seed).write(input.getPath(), mode, cities, density, Integer.parseInt(numFlights));
+
+			for(String heap: heaps) {
+				String[] first = null;
+				for(String numThreads: threads) {
+					String[] row = run(input, heap, numThreads, passOn, timeout);
+					row[0] = mode;
+					row[1] = String.valueOf(cities);
+					row[2] = numFlights;
+					if(first == null) {
+						first = row;
+					}
+					row[8] = speedup(first, row);
+					rows.add(row);
+					System.err.println(String.join(" ", row));
+				}
+			}
+			input.delete();
+		}
+		inputs.delete();
+
+		try (PrintStream report = new PrintStream(args[0])) {
+			if(args[0].endsWith(".md")) {
+				writeMarkdown(report, rows);
+			} else {
+				writeCsv(report, rows);
+			}
+		}
+	}
+
+	/**
+	 * Gives how many times faster a run solved than the first run
+	 * of its input and heap
+	 * @return String. empty unless both runs solved
+	 */
+	private static String speedup(String[] first, String[] row) {
+		if(!first[5].equals("ok") || !row[5].equals("ok")) {
+			return "";
+		}
+		double millis = Math.max(1, Long.parseLong(row[7]));
+		return String.format("%.2f", Long.parseLong(first[7]) / millis);
+	}
+
+	/**
+	 * Runs the scheduler on an input in a new JVM
+	 * @param String number of threads, empty to leave the scheduler's own
+	 * @return a report row, the first three columns left to fill in
+	 */
+	private static String[] run(File input, String heap, String numThreads, List<String> passOn, int timeout)
+			throws IOException, InterruptedException {
+		String[] row = new String[COLUMNS.length];
+		Arrays.fill(row, "");
+		row[3] = heap;
+		row[4] = numThreads;
+
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-Xmx" + heap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ScalingHarness.class.getName());
+		command.add(PROBE);
+		command.add(input.getPath());
+		command.addAll(passOn);
+		if(!numThreads.isEmpty()) {
+			command.add("--threads=" + numThreads);
+		}
+
+		File out = File.createTempFile("run", ".out");
+		File err = File.createTempFile("run", ".err");
+		long started = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectOutput(out).redirectError(err).start();
+		boolean finished = process.waitFor(timeout, TimeUnit.SECONDS);
+		row[6] = String.valueOf((System.nanoTime() - started) / 1000000);
+
+		if(!finished) {
+			process.destroyForcibly().waitFor();
+			row[5] = "timeout";
+		} else {
+			read(Files.readAllLines(out.toPath()), Files.readAllLines(err.toPath()), process.exitValue(), row);
+		}
+		out.delete();
+		err.delete();
+		return row;
+	}
+
+	/**
+	 * Fills in a row from what a run printed
+	 */
+	private static void read(List<String> out, List<String> err, int exitValue, String[] row) {
+		row[5] = exitValue == 0 ? "ok" : "error";
+
+		for(String line: out) {
+			if(line.startsWith("Error occurred during initialization of VM")) {
+				row[5] = "vm-error";
+			} else if(line.endsWith(" nodes expanded") || line.endsWith(" states evaluated")) {
+				row[9] = line.substring(0, line.indexOf(' '));
+			} else if(line.startsWith("cost = ")) {
+				row[10] = line.substring("cost = ".length());
+			}
+		}
+		for(String line: err) {
+			if(line.startsWith(RESULT)) {
+				String[] fields = line.substring(RESULT.length()).trim().split(" ");
+				row[5] = fields[0];
+				row[7] = fields[1];
+				row[11] = fields[2];
+				row[12] = fields[3];
+			} else if(line.contains("OutOfMemoryError") && row[5].equals("error")) {
+				row[5] = "oom";
+			}
+		}
+	}
+
+	/**
+	 * Runs in the child JVM. Solves the input as the scheduler's main
+	 * would and then prints a line of status, solve time, peak heap
+	 * and gc time to stderr for the harness to read
+	 */
+	private static void probe(String[] args) throws IOException, InterruptedException {
+		String status = "ok";
+		long started = System.nanoTime();
+
+		try {
+			FlightScheduler.main(args);
+		} catch (OutOfMemoryError e) {
+			status = "oom";
+		} catch (RuntimeException e) {
+			status = "error";
+		}
+		long solveMillis = (System.nanoTime() - started) / 1000000;
+
+		long peak = 0;
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		long gcMillis = 0;
+		for(GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcMillis += Math.max(0, collector.getCollectionTime());
+		}
+		System.out.flush();
+		System.err.println(RESULT + " " + status + " " + solveMillis + " " + peak / 1024 + " " + gcMillis);
+		if(!status.equals("ok")) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Gives the options to pass on to the scheduler
+	 */
+	private static List<String> schedulerOptions(String[] args) {
+		ArrayList<String> passOn = new ArrayList<String>();
+
+		for(int i = 1; i < args.length; i++) {
+			boolean own = false;
+			for(String name: OWN_OPTIONS) {
+				if(args[i].startsWith("--" + name + "=")) {
+					own = true;
+				}
+			}
+			if(!own) {
+				passOn.add(args[i]);
+			}
+		}
+		return passOn;
+	}
+
+	private static void writeCsv(PrintStream report, List<String[]> rows) {
+		report.println(String.join(",", COLUMNS));
+		for(String[] row: rows) {
+			report.println(String.join(",", row));
+		}
+	}
+
+	private static void writeMarkdown(PrintStream report, List<String[]> rows) {
+		report.println("| " + String.join(" | ", COLUMNS) + " |");
+		StringBuilder rule = new StringBuilder("|");
+		for(int i = 0; i < COLUMNS.length; i++) {
+			rule.append(" --- |");
+		}
+		report.println(rule);
+		for(String[] row: rows) {
+			report.println("| " + String.join(" | ", row) + " |");
+		}
+	}
+}
@@ -0,0 +1,209 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Long running scheduler which keeps one compiled network and its
+ * shortest path table in memory and answers many requests against
+ * it, so a request only pays for its own search.
+ *
+ * A request is a block of "Flight from to" lines ended by a line
+ * "Solve" or an empty line. The answer is printed exactly as the
+ * command line prints it, followed by a line "End". A request which
+ * can't be solved gets a line "Error message" before its "End".
+ *
+ * Every request is solved on its own thread and answers come back
+ * in the order the requests came in. The searches use the engine
+ * and heuristic options the server was started with
+ */
+public class SchedulerServer {
+	private CompiledGraph network;
+	private Supplier<ShortestPaths> paths;
+	private PatternDatabase patterns;
+	private ResultCache results;
+	private String[] options;
+	private ExecutorService solvers;
+
+	/**
+	 * @param CompiledGraph to answer requests on
+	 * @param giver of the ShortestPaths of the network, only
+	 * asked once a search needs the table
+	 * @param command line arguments holding the search options
+	 */
+	public SchedulerServer(CompiledGraph map, Supplier<ShortestPaths> table, String[] args) {
+		network = map;
+		paths = table;
+		options = args;
+		solvers = newSolverPool();
+	}
+
+	/**
+	 * Gives every search the tables of a PatternDatabase
+	 * @param PatternDatabase built for the network. null for none
+	 */
+	public void usePatterns(PatternDatabase database) {
+		patterns = database;
+	}
+
+	/**
+	 * Shares a ResultCache between every search
+	 * @param ResultCache for the network. null for none
+	 */
+	public void useResults(ResultCache cache) {
+		results = cache;
+	}
+
+	/**
+	 * Answers every request on a stream until it ends
+	 * @param where requests are read from
+	 * @param where answers are written
+	 */
+	public void serve(InputStream in, OutputStream out) throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		final PrintStream writer = new PrintStream(out, false);
+		ExecutorService answers = Executors.newSingleThreadExecutor();
+		ArrayList<String> request = new ArrayList<String>();
+		String line;
+
+		while((line = reader.readLine()) != null) {
+			line = line.trim();
+			if(line.isEmpty() || line.equals("Solve")) {
+				if(!request.isEmpty()) {
+					submit(request, answers, writer);
+					request = new ArrayList<String>();
+				}
+			} else {
+				request.add(line);
+			}
+		}
+		if(!request.isEmpty()) {
+			submit(request, answers, writer);
+		}
+		answers.shutdown();
+		answers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	/**
+	 * Accepts connections on a local port, serving each
+	 * connection on its own thread. Never returns
+	 * @param integer port number
+	 */
+	public void listen(int port) throws IOException {
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+		while(true) {
+			final Socket client = server.accept();
+			solvers.execute(() -> {
+				try {
+					serve(client.getInputStream(), client.getOutputStream());
+					client.close();
+				} catch (IOException | InterruptedException e) {
+					System.err.println("connection closed: " + e.getMessage());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops taking requests once the ones already taken are answered
+	 */
+	public void shutdown() {
+		solvers.shutdown();
+	}
+
+	/**
+	 * Starts solving a request and queues its answer for writing.
+	 * The writer is a single thread so answers go out in order
+	 */
+	private void submit(final ArrayList<String> request, ExecutorService answers, final PrintStream writer) {
+		final Future<String> answer = solvers.submit(() -> answer(request));
+
+		answers.execute(() -> {
+			writer.print(collect(answer));
+			writer.flush();
+		});
+	}
+
+	/**
+	 * Solves one request
+	 * @param lines of the request
+	 * @return the answer, ending in "End"
+	 */
+	private String answer(ArrayList<String> request) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(buffer);
+
+		try {
+			int[] from = new int[request.size()];
+			int[] to = new int[request.size()];
+
+			for(int i = 0; i < request.size(); i++) {
+				String[] tokens = request.get(i).split("\\s+");
+				if(tokens.length != 3 || !tokens[0].equals("Flight")) {
+					throw new IllegalArgumentException("Expected Flight from to but got " + request.get(i));
+				}
+				from[i] = city(tokens[1]);
+				to[i] = city(tokens[2]);
+			}
+
+			FlightScheduler fs = new FlightScheduler(network, paths);
+			if(patterns != null) {
+				fs.usePatterns(patterns);
+			}
+			if(results != null) {
+				fs.useResults(results);
+			}
+			fs.setStart(FlightScheduler.option(options, "start", FlightScheduler.START_CITY));
+			fs.require(from, to);
+			fs.solve(options, out);
+		} catch (RuntimeException | InterruptedException e) {
+			out.println("Error " + e.getMessage());
+		}
+		out.println("End");
+		out.flush();
+		return buffer.toString();
+	}
+
+	private int city(String name) {
+		int id = network.getCity(name);
+		if(id == -1) {
+			throw new IllegalArgumentException("Unknown city " + name);
+		}
+		return id;
+	}
+
+	private static String collect(Future<String> answer) {
+		try {
+			return answer.get();
+		} catch (InterruptedException | ExecutionException e) {
+			return "Error " + e.getMessage() + "\nEnd\n";
+		}
+	}
+
+	/**
+	 * Uses a virtual thread per request where the JVM has them
+	 * (Java 21 on) and a pool of ordinary threads otherwise
+	 * @return ExecutorService
+	 */
+	private static ExecutorService newSolverPool() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event written at the end of every solve. It costs
+ * nothing unless a recording is running, e.g. when started with
+ * -XX:StartFlightRecording:filename=solve.jfr
+ */
+@Name("flightscheduler.Search")
+@Label("Flight Search")
+@Category("Flight Scheduler")
+@Description("One solve of a request for required flights")
+public class SearchEvent extends Event {
+	@Label("Engine")
+	String engine;
+
+	@Label("Required Flights")
+	int requiredFlights;
+
+	@Label("Nodes Generated")
+	long generated;
+
+	@Label("Nodes Expanded")
+	long expanded;
+
+	@Label("Duplicates Pruned")
+	long duplicatesPruned;
+
+	@Label("Reopened")
+	long reopened;
+
+	@Label("Peak Open List")
+	int peakOpen;
+
+	@Label("Peak Closed Set")
+	int peakClosed;
+
+	@Label("Root Heuristic")
+	int rootH;
+
+	@Label("Cost")
+	int cost;
+
+	@Label("Search Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long searchTime;
+
+	/**
+	 * Copies in the metrics of a finished solve
+	 * @param SearchMetrics
+	 * @param integer number of required flights
+	 */
+	void fill(SearchMetrics metrics, int numFlights) {
+		engine = metrics.getEngine();
+		requiredFlights = numFlights;
+		generated = metrics.getGenerated();
+		expanded = metrics.getExpanded();
+		duplicatesPruned = metrics.getPruned();
+		reopened = metrics.getReopened();
+		peakOpen = metrics.getPeakOpen();
+		peakClosed = metrics.getPeakClosed();
+		rootH = metrics.getRootH();
+		cost = metrics.getCost();
+		searchTime = metrics.getTotalNanos();
+	}
+}
@@ -0,0 +1,261 @@
+import java.util.Locale;
+
+/**
+ * What one solve did and where its time went.
+ *
+ * Counters are always kept as they cost next to nothing. The time
+ * split needs a clock read around every heuristic call, closed set
+ * lookup, goal test and queue operation, so it is only measured when
+ * asked for. Values an engine doesn't have are left at -1 and come out
+ * as null in the JSON
+ */
+public class SearchMetrics {
+	private String engine;
+	private boolean timed;
+
+	private long generated;
+	private long expanded;
+	private long pruned;
+	private long reopened;
+	private int peakOpen;
+	private int peakClosed;
+	private int rootH;
+	private int cost;
+	private long cacheHits;
+	private long cacheMisses;
+
+	private long totalNanos;
+	private long heuristicNanos;
+	private long duplicateNanos;
+	private long goalTestNanos;
+	private long queueNanos;
+
+	/**
+	 * @param String name of the engine
+	 * @param true to split the search time by operation
+	 */
+	public SearchMetrics(String engineName, boolean timeOperations) {
+		engine = engineName;
+		timed = timeOperations;
+		generated = -1;
+		expanded = -1;
+		pruned = -1;
+		reopened = -1;
+		peakOpen = -1;
+		peakClosed = -1;
+		rootH = -1;
+		cost = -1;
+		cacheHits = -1;
+		cacheMisses = -1;
+		heuristicNanos = -1;
+		duplicateNanos = -1;
+		goalTestNanos = -1;
+		queueNanos = -1;
+		if(timed) {
+			heuristicNanos = 0;
+			duplicateNanos = 0;
+			goalTestNanos = 0;
+			queueNanos = 0;
+		}
+	}
+
+	/**
+	 * Reads the clock if operations are being timed
+	 * @return long nanoseconds to pass to one of the time methods
+	 */
+	public long start() {
+		return timed ? System.nanoTime() : 0;
+	}
+
+	public void timeHeuristic(long started) {
+		if(timed) {
+			heuristicNanos += System.nanoTime() - started;
+		}
+	}
+
+	public void timeDuplicates(long started) {
+		if(timed) {
+			duplicateNanos += System.nanoTime() - started;
+		}
+	}
+
+	public void timeGoalTest(long started) {
+		if(timed) {
+			goalTestNanos += System.nanoTime() - started;
+		}
+	}
+
+	public void timeQueue(long started) {
+		if(timed) {
+			queueNanos += System.nanoTime() - started;
+		}
+	}
+
+	/**
+	 * Zeroes the counters of an engine which counts every node,
+	 * leaving them at -1 for engines which only set some of them
+	 * @param true if the engine reopens States, so counts them too
+	 */
+	public void startCounting(boolean reopens) {
+		generated = 0;
+		expanded = 0;
+		pruned = 0;
+		if(reopens) {
+			reopened = 0;
+		}
+	}
+
+	public void countGenerated() {
+		generated++;
+	}
+
+	public void countExpanded() {
+		expanded++;
+	}
+
+	/**
+	 * Counts a State dropped for already having been reached
+	 */
+	public void countPruned() {
+		pruned++;
+	}
+
+	/**
+	 * Counts a State opened again after a cheaper path to it was found
+	 */
+	public void countReopened() {
+		reopened++;
+	}
+
+	/**
+	 * @param integer current size of the open list
+	 */
+	public void seenOpen(int size) {
+		if(size > peakOpen) {
+			peakOpen = size;
+		}
+	}
+
+	/**
+	 * @param integer current size of the closed set
+	 */
+	public void seenClosed(int size) {
+		if(size > peakClosed) {
+			peakClosed = size;
+		}
+	}
+
+	public void setGenerated(long count) {
+		generated = count;
+	}
+
+	public void setExpanded(long count) {
+		expanded = count;
+	}
+
+	public void setRootH(int h) {
+		rootH = h;
+	}
+
+	public void setCost(int minutes) {
+		cost = minutes;
+	}
+
+	public void setTotalNanos(long nanos) {
+		totalNanos = nanos;
+	}
+
+	/**
+	 * Records how a CachedStrategy did
+	 * @param long lookups answered from the cache
+	 * @param long lookups worked out
+	 */
+	public void setHeuristicCache(long hits, long misses) {
+		cacheHits = hits;
+		cacheMisses = misses;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+
+	public long getGenerated() {
+		return generated;
+	}
+
+	public long getExpanded() {
+		return expanded;
+	}
+
+	public long getPruned() {
+		return pruned;
+	}
+
+	public long getReopened() {
+		return reopened;
+	}
+
+	public int getPeakOpen() {
+		return peakOpen;
+	}
+
+	public int getPeakClosed() {
+		return peakClosed;
+	}
+
+	public int getRootH() {
+		return rootH;
+	}
+
+	public int getCost() {
+		return cost;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Gives the metrics as a JSON object on one line. Times are
+	 * in milliseconds
+	 * @return String
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{");
+		json.append("\"engine\":\"").append(engine).append('"');
+		json.append(",\"generated\":").append(orNull(generated));
+		json.append(",\"expanded\":").append(orNull(expanded));
+		json.append(",\"duplicatesPruned\":").append(orNull(pruned));
+		json.append(",\"reopened\":").append(orNull(reopened));
+		json.append(",\"peakOpen\":").append(orNull(peakOpen));
+		json.append(",\"peakClosed\":").append(orNull(peakClosed));
+		json.append(",\"rootH\":").append(orNull(rootH));
+		json.append(",\"cost\":").append(orNull(cost));
+		json.append(",\"heuristicCacheHits\":").append(orNull(cacheHits));
+		json.append(",\"heuristicCacheMisses\":").append(orNull(cacheMisses));
+		json.append(",\"millis\":{");
+		json.append("\"total\":").append(millis(totalNanos));
+		json.append(",\"heuristic\":").append(millis(heuristicNanos));
+		json.append(",\"duplicates\":").append(millis(duplicateNanos));
+		json.append(",\"goalTest\":").append(millis(goalTestNanos));
+		json.append(",\"queue\":").append(millis(queueNanos));
+		json.append("}}");
+		return json.toString();
+	}
+
+	private static String orNull(long value) {
+		return value < 0 ? "null" : String.valueOf(value);
+	}
+
+	private static String millis(long nanos) {
+		return nanos < 0 ? "null" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * What a heuristic strategy sees of a node: where it is, which
+ * required flights it has covered and how it got there. Both State
+ * and the nodes of a NodeArena look like this, so each heuristic is
+ * written once for every engine
+ */
+public interface SearchNode {
+
+	/**
+	 * Gives the current city
+	 * @return integer city id
+	 */
+	public int getLocation();
+
+	/**
+	 * Checks if the required flight in a slot has been flown
+	 * @param integer slot of the required flight
+	 * @return true if covered. false otherwise
+	 */
+	public boolean isCovered(int slot);
+
+	/**
+	 * Gives number of required flights covered
+	 * @return integer
+	 */
+	public int numFlightsCovered();
+
+	/**
+	 * Gives one 64 bit word of the coverage, for comparing coverages
+	 * without building them
+	 * @param integer index of the word
+	 * @return long
+	 */
+	public long getCoverageWord(int index);
+
+	/**
+	 * Gives the required flights covered as an object, which
+	 * may be built on every call
+	 * @return Coverage
+	 */
+	public Coverage getCoverage();
+
+	/**
+	 * Gives the heuristic, which is the parent's until one is set
+	 * @return integer
+	 */
+	public int getHeur();
+
+	/**
+	 * Gives the edge taken to reach the node
+	 * @return integer edge id. -1 at the start
+	 */
+	public int getLast();
+
+	/**
+	 * Checks if the last edge covered a required flight that
+	 * hadn't been covered yet
+	 * @return true if it did. false otherwise or at the start
+	 */
+	public boolean coversNewFlight();
+}
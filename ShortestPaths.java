@@ -0,0 +1,280 @@
+/**
+ * Table of the cheapest cost between every pair of cities in a
+ * CompiledGraph, found with one Dijkstra search per city.
+ * Costs use the edge weights so they include the delay at every
+ * city landed in along the way, the destination included, but not
+ * the delay at the city the path starts from. The last edge of each
+ * cheapest path is kept too so the paths can be rebuilt
+ */
+public class ShortestPaths {
+	public static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+	private CompiledGraph network;
+	private int numCities;
+	private int[] dist;
+	private int[] via;
+
+	public ShortestPaths(CompiledGraph map) {
+		network = map;
+		numCities = network.numCities();
+		dist = new int[tableSize(numCities)];
+		via = new int[tableSize(numCities)];
+
+		// EVERY EDGE IS RELAXED AT MOST ONCE SO THE HEAP NEVER OVERFLOWS
+		long[] heap = new long[network.numEdges() + 1];
+		for(int from = 0; from < numCities; from++) {
+			search(from, heap);
+		}
+	}
+
+	/**
+	 * Gives the number of entries in a table of every pair of cities
+	 * @param integer number of cities
+	 * @return integer
+	 * @throws IllegalArgumentException if there are too many cities
+	 * for the table to fit in one array
+	 */
+	public static int tableSize(int numCities) {
+		long size = (long) numCities * numCities;
+		if(size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("A network of " + numCities + " cities is too large for a "
+					+ "shortest path table of every pair, which holds at most " + (int) Math.sqrt(Integer.MAX_VALUE - 8)
+					+ " cities");
+		}
+		return (int) size;
+	}
+
+	/**
+	 * Wraps a table already worked out for the network, such as
+	 * one read back from a PatternDatabase
+	 * @param CompiledGraph the table is for
+	 * @param costs, from * numCities + to
+	 * @param last edge of each cheapest path, indexed the same way
+	 */
+	public ShortestPaths(CompiledGraph map, int[] costs, int[] lastEdges) {
+		network = map;
+		numCities = network.numCities();
+		dist = costs;
+		via = lastEdges;
+	}
+
+	/**
+	 * Gives the table for a changed copy of the network, made with
+	 * CompiledGraph.withDelay or withFlightTime, reusing this table.
+	 * Only cities whose cheapest paths used an edge that got dearer
+	 * are searched again. Edges that got cheaper are then added one
+	 * at a time: a city's row only changes if the edge improves its
+	 * cost to the edge's end, and then by the row of that end.
+	 * This table is left as it is
+	 * @param CompiledGraph copy of this table's network with some
+	 * weights changed
+	 * @return ShortestPaths of the changed network
+	 */
+	public ShortestPaths update(CompiledGraph changed) {
+		ShortestPaths updated = new ShortestPaths(changed, dist.clone(), via.clone());
+		boolean[] rerun = new boolean[numCities];
+		int[] cheaper = new int[network.numEdges()];
+		int numCheaper = 0;
+
+		for(int edge = 0; edge < network.numEdges(); edge++) {
+			int before = network.getWeight(edge);
+			int after = changed.getWeight(edge);
+
+			if(after > before) {
+				int to = network.getTarget(edge);
+				for(int from = 0; from < numCities; from++) {
+					if(via[from * numCities + to] == edge) {
+						rerun[from] = true;
+					}
+				}
+			} else if(after < before) {
+				cheaper[numCheaper++] = edge;
+			}
+		}
+
+		long[] heap = new long[changed.numEdges() + 1];
+		for(int from = 0; from < numCities; from++) {
+			if(rerun[from]) {
+				updated.search(from, heap);
+			}
+		}
+		for(int i = 0; i < numCheaper; i++) {
+			updated.relax(cheaper[i]);
+		}
+		return updated;
+	}
+
+	/**
+	 * Gives the whole table of costs, from * numCities + to
+	 * @return array, not a copy
+	 */
+	public int[] getCosts() {
+		return dist;
+	}
+
+	/**
+	 * Gives the last edge of every cheapest path, from * numCities + to
+	 * @return array, not a copy
+	 */
+	public int[] getLastEdges() {
+		return via;
+	}
+
+	/**
+	 * Gives the cheapest cost of getting from one city to another
+	 * @param integer city id to start from
+	 * @param integer city id to arrive at
+	 * @return integer minutes. UNREACHABLE if there is no path
+	 */
+	public int getCost(int from, int to) {
+		return dist[from * numCities + to];
+	}
+
+	/**
+	 * Gives the edges of a cheapest path from one city to another
+	 * @param integer city id to start from
+	 * @param integer city id to arrive at
+	 * @return array of edge ids, first flight first. Empty if the
+	 * cities are the same
+	 */
+	public int[] getPath(int from, int to) {
+		int row = from * numCities;
+		int length = 0;
+
+		for(int city = to; city != from; city = network.getSource(via[row + city])) {
+			length++;
+		}
+		int[] path = new int[length];
+		for(int city = to; city != from; city = network.getSource(via[row + city])) {
+			path[--length] = via[row + city];
+		}
+		return path;
+	}
+
+	/**
+	 * Expands flights flown in order into a route by putting a
+	 * cheapest path to the start of each one in front of it
+	 * @param integer city id the route starts from
+	 * @param array of the edge ids of the flights, in order
+	 * @return array of edge ids, first flight first
+	 */
+	public int[] expand(int start, int[] flights) {
+		int[][] legs = new int[flights.length][];
+		int length = flights.length;
+		int city = start;
+
+		for(int i = 0; i < flights.length; i++) {
+			legs[i] = getPath(city, network.getSource(flights[i]));
+			length += legs[i].length;
+			city = network.getTarget(flights[i]);
+		}
+
+		int[] route = new int[length];
+		int at = 0;
+		for(int i = 0; i < flights.length; i++) {
+			System.arraycopy(legs[i], 0, route, at, legs[i].length);
+			at += legs[i].length;
+			route[at++] = flights[i];
+		}
+		return route;
+	}
+
+	/**
+	 * Dijkstra from a single city, filling in its row of the table.
+	 * Heap entries pack the cost above the city id so the heap
+	 * is a plain array of longs
+	 */
+	private void search(int from, long[] heap) {
+		int row = from * numCities;
+		int size = 0;
+
+		for(int i = 0; i < numCities; i++) {
+			dist[row + i] = UNREACHABLE;
+			via[row + i] = -1;
+		}
+		dist[row + from] = 0;
+		heap[size++] = from;
+
+		while(size > 0) {
+			long top = heap[0];
+			heap[0] = heap[--size];
+			siftDown(heap, size);
+
+			int city = (int) top;
+			int cost = (int) (top >>> 32);
+			if(cost > dist[row + city]) {
+				continue;
+			}
+
+			for(int edge = network.edgeStart(city); edge < network.edgeEnd(city); edge++) {
+				int child = network.getTarget(edge);
+				int newCost = cost + network.getWeight(edge);
+
+				if(newCost < dist[row + child]) {
+					dist[row + child] = newCost;
+					via[row + child] = edge;
+					heap[size] = ((long) newCost << 32) | child;
+					siftUp(heap, size++);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Brings every row up to date after an edge got cheaper,
+	 * given the table was right for every other edge
+	 * @param integer edge id
+	 */
+	private void relax(int edge) {
+		int u = network.getSource(edge);
+		int v = network.getTarget(edge);
+		int weight = network.getWeight(edge);
+		int fromV = v * numCities;
+
+		for(int row = 0; row < dist.length; row += numCities) {
+			int toU = dist[row + u];
+
+			// PATHS ONLY IMPROVE THROUGH THE EDGE IF ITS END DOES
+			if(toU == UNREACHABLE || toU + weight >= dist[row + v]) {
+				continue;
+			}
+			for(int city = 0; city < numCities; city++) {
+				int onward = dist[fromV + city];
+				if(onward != UNREACHABLE && toU + weight + onward < dist[row + city]) {
+					dist[row + city] = toU + weight + onward;
+					via[row + city] = city == v ? edge : via[fromV + city];
+				}
+			}
+		}
+	}
+
+	private static void siftUp(long[] heap, int i) {
+		long entry = heap[i];
+		while(i > 0 && heap[(i - 1) >>> 1] > entry) {
+			heap[i] = heap[(i - 1) >>> 1];
+			i = (i - 1) >>> 1;
+		}
+		heap[i] = entry;
+	}
+
+	private static void siftDown(long[] heap, int size) {
+		if(size == 0) {
+			return;
+		}
+		long entry = heap[0];
+		int i = 0;
+		int child = 1;
+		while(child < size) {
+			if(child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if(heap[child] >= entry) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+			child = 2 * i + 1;
+		}
+		heap[i] = entry;
+	}
+}
\ No newline at end of file
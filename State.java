@@ -1,144 +1,140 @@
-import java.util.LinkedList;
-
-
-public class State implements Comparable<State>{
-	private Node location;
-	private LinkedList<Flight> pathSoFar;
+/**
+ * A search node. Rather than holding the whole path a State only
+ * knows the State it was reached from and the edge taken to get
+ * here, so children share their parent's path. Cities and edges
+ * are ids in the CompiledGraph being searched
+ */
+public class State implements Comparable<State>, SearchNode{
+	private int location;
+	private State parent;
+	private int lastEdge;
+	private int depth;
 	private int costSoFar;
 	private int hCost;
+	private Coverage covered;
 	
 	
-	public State(Node cityNode, LinkedList<Flight>path, int minutes, int h) {
-		location = cityNode;
-		pathSoFar = path;
+	public State(int city, State from, int edge, int minutes, int h, Coverage flown) {
+		location = city;
+		parent = from;
+		lastEdge = edge;
 		costSoFar = minutes;
 		hCost = h;
+		covered = flown;
+	
+		if(from == null) {
+			depth = 0;
+		} else {
+			depth = from.depth + 1;
+		}
 	}
 	
 	/**
-	 * Gives number of flights which are covered in the path so far
-	 * If at initial state, it'll return zero
-	 * @param Linked List of required flights
-	 * @return integer
+	 * Builds the chain of States for a route found by
+	 * some other means than searching State by State
+	 * @param CompiledGraph the route is on
+	 * @param index of required flights
+	 * @param integer city id the route starts from
+	 * @param array of edge ids, first flight first
+	 * @return the last State of the route
 	 */
-	public int numFlightsCovered (LinkedList<Flight> flights) {
-		LinkedList<Flight>clone = this.getPathSoFar();
-		
-		int numFound = 0;
-		Flight path;
-		Flight[] pathSoFar;
-		
-		if(clone != null) {
-			pathSoFar = new Flight[clone.size()];
-			clone.toArray(pathSoFar);
-			
-			for(Flight required: flights) {
-				for(int i = 0; i < clone.size(); i++) {
-					path = pathSoFar[i];
-					if(path != null && required.sameFlight(path)) {
-						pathSoFar[i] = null;
-						numFound++; 
-						break;
-					}
-				}
-			}
-		}
-		return numFound;
-	}
-	
-	/**
-	 * Finds flights which still need to be found.
-	 * Compliment of the intersection of flight in path so far 
-	 * and required flights.
-	 * @param Linked List of the required flights
-	 * @return Linked list of required Flights that
-	 * aren't yet covered by the path so far
-	 * 
-	 */
-	public LinkedList<Flight> coveredFlights(LinkedList<Flight> flights) {
-		LinkedList<Flight>clone = this.getPathSoFar();
-		Flight path;
-		Flight[] pathSoFar;
-		LinkedList<Flight> toReturn = new LinkedList<Flight>();
-		
-		if(clone != null) {
-			pathSoFar = new Flight[clone.size()];
-			clone.toArray(pathSoFar);
-			
-			for(Flight required: flights) {
-				for(int i = 0; i < clone.size(); i++) {
-					path = pathSoFar[i];
-					if(path != null && required.sameFlight(path)) {
-						toReturn.add(path);
-						pathSoFar[i] = null;
-						
-						break;
-					}
-				}
+	public static State buildRoute(CompiledGraph network, FlightIndex required, int start, int[] route) {
+		State current = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+	
+		for(int i = 0; i < route.length; i++) {
+			int edge = route[i];
+			int cost = current.costSoFar + network.getWeight(edge);
+	
+			// NO DELAY AFTER LANDING THE LAST FLIGHT
+			if(i == route.length - 1) {
+				cost -= network.getDelay(network.getTarget(edge));
 			}
-			
-			return toReturn;
+			current = new State(network.getTarget(edge), current, edge, cost, 0,
+					required.cover(current.covered, edge));
 		}
-		return null;
+		return current;
 	}
 	
-	public Flight getLast() {
-		return pathSoFar.getLast();
+	/**
+	 * Gives number of required flights which are covered in the path so far
+	 * If at initial state, it'll return zero
+	 * @return integer
+	 */
+	public int numFlightsCovered() {
+		return covered.numCovered();
 	}
 	
 	/**
-	 * Gives number of Flights in path
-	 * @precondition not to be called when at initial state
-	 * @return integer 
+	 * Checks if the last Flight taken was a required
+	 * flight that hadn't been covered yet
+	 * @return true if the last flight covered a required flight.
+	 * false otherwise or at the initial state
 	 */
-	public int numEdge() {
-		return pathSoFar.size();
+	public boolean coversNewFlight() {
+		if(parent == null) {
+			return false;
+		}
+		return covered.numCovered() > parent.covered.numCovered();
 	}
 	
 	/**
-	 * Updates the costSoFar to add the delay time at the 
-	 * current airport
-	 * @param integer minutes in delay
+	 * Gives the edge taken to reach this state
+	 * @return integer edge id. -1 at the initial state
 	 */
-	public void addDelayTime(int minutes) {
-		costSoFar += minutes;
+	public int getLast() {
+		return lastEdge;
 	}
 	
 	/**
-	 * Gives a list of Flights containing the current
-	 * location and its immediate neighbours
-	 * @return LinkedList of Flights 
+	 * Gives the State this one was reached from
+	 * @return State. null at the initial state
 	 */
-	public LinkedList<Flight> childEdges() {
-		return location.getChildren();
+	public State getParent() {
+		return parent;
 	}
 	
 	/**
-	 * Gives clone of path so far. No reference to 
-	 * original list. Gives NULL if at initial state
-	 * @return a deep copy of the path so far
+	 * Gives number of Flights in path
+	 * @return integer
 	 */
-	public LinkedList<Flight> getPathSoFar() {
-		
-		if(pathSoFar == null) {
-			return null;
-		}
-		LinkedList<Flight> pathClone = new LinkedList<Flight>();
-		
-		for(Flight element: pathSoFar) {
-			
-			pathClone.add(element);
+	public int numEdge() {
+		return depth;
+	}
+	
+	/**
+	 * Rebuilds the path so far by following the parents
+	 * back to the initial state
+	 * @return array of the edge ids taken, first flight first
+	 */
+	public int[] getPathSoFar() {
+		int[] path = new int[depth];
+	
+		for(State curr = this; curr.parent != null; curr = curr.parent) {
+	
+			path[curr.depth - 1] = curr.lastEdge;
 		}
-		return pathClone;
+		return path;
 	}
 	
+	/**
+	 * Orders by f-cost, breaking ties towards the lower
+	 * heuristic which is the State further along
+	 */
 	@Override
 	public int compareTo(State toCompare) {
-		
-		return (this.calcF() - toCompare.calcF());
+		int diff = this.calcF() - toCompare.calcF();
+	
+		if(diff == 0) {
+			return this.hCost - toCompare.hCost;
+		}
+		return diff;
 	}
 	
-	private int calcF() {
+	/**
+	 * Gives the f-cost, the cost so far plus the heuristic
+	 * @return int
+	 */
+	public int calcF() {
 		return hCost + costSoFar;
 	}
 	
@@ -160,40 +156,56 @@ public class State implements Comparable<State>{
 	
 	/**
 	 * Set the heuristic of the state
-	 * @param integer for heuristic value 
+	 * @param integer for heuristic value
 	 */
 	public void updateH(int cost) {
 		hCost = cost;
 	}
 	
 	/**
-	 * Gets reference to location Node
-	 * @return Node
+	 * Gives the required flights covered by the path so far
+	 * @return Coverage
 	 */
-	public Node getLocation() {
+	public Coverage getCoverage() {
+		return covered;
+	}
+	
+	/**
+	 * Gives the current city
+	 * @return integer city id
+	 */
+	public int getLocation() {
 		return location;
 	}
 	
 	/**
-	 * Gives string representation of the current city
-	 * @return String
+	 * Checks if the required flight in a slot has been flown
+	 * @param integer slot of the required flight
+	 * @return true if covered. false otherwise
+	 */
+	public boolean isCovered(int slot) {
+		return covered.isCovered(slot);
+	}
+	
+	/**
+	 * Gives one 64 bit word of the coverage
+	 * @param integer index of the word
+	 * @return long
 	 */
-	public String city() {
-		return location.getName();
+	public long getCoverageWord(int index) {
+		return covered.getWord(index);
 	}
 	
 	//for testing
-	public void showState() {
-		System.out.println("location is: " + location.getName());
+	public void showState(CompiledGraph network) {
+		System.out.println("location is: " + network.getName(location));
 		System.out.println("cost so far is: " + costSoFar);
 		System.out.println("heuristic is: " + hCost);
-		
-		if(pathSoFar != null) {
-			for(Flight current: pathSoFar) {
-				System.out.print("[" + current.getFrom().getName() + "-");
-				System.out.println(current.getTo().getName() + "]");
-			}	
+	
+		for(int edge: getPathSoFar()) {
+			System.out.print("[" + network.getName(network.getSource(edge)) + "-");
+			System.out.println(network.getName(network.getTarget(edge)) + "]");
 		}
-
+	
 	}
 }
\ No newline at end of file
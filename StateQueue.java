@@ -0,0 +1,77 @@
+/**
+ * BucketQueue of States, ordered by f-cost the same way. Each State
+ * waiting is given a number, reused once it is polled, and the
+ * numbers go in the BucketQueue
+ */
+public class StateQueue {
+	private BucketQueue buckets;
+	private State[] states;
+	private int[] free;
+	private int numFree;
+	private int numUsed;
+
+	public StateQueue() {
+		buckets = new BucketQueue();
+		states = new State[64];
+		free = new int[64];
+		numFree = 0;
+		numUsed = 0;
+	}
+
+	/**
+	 * Checks if there are no States left
+	 * @return true if empty. false otherwise
+	 */
+	public boolean isEmpty() {
+		return buckets.isEmpty();
+	}
+
+	/**
+	 * Gives number of States waiting
+	 * @return integer
+	 */
+	public int size() {
+		return buckets.size();
+	}
+
+	/**
+	 * Adds a State to the bucket of its f-cost
+	 * @param State to add
+	 */
+	public void add(State toAdd) {
+		int number;
+		if(numFree > 0) {
+			number = free[--numFree];
+		} else {
+			number = numUsed++;
+			if(number == states.length) {
+				State[] more = new State[states.length * 2];
+				System.arraycopy(states, 0, more, 0, states.length);
+				states = more;
+			}
+		}
+		states[number] = toAdd;
+		buckets.add(number, toAdd.calcF());
+	}
+
+	/**
+	 * Removes a State of the lowest f-cost, the
+	 * most recently added one if there are several
+	 * @return State. null if empty
+	 */
+	public State poll() {
+		int number = buckets.poll();
+		if(number == -1) {
+			return null;
+		}
+		State found = states[number];
+		states[number] = null;
+		if(numFree == free.length) {
+			int[] more = new int[free.length * 2];
+			System.arraycopy(free, 0, more, 0, free.length);
+			free = more;
+		}
+		free[numFree++] = number;
+		return found;
+	}
+}
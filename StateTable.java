@@ -0,0 +1,176 @@
+/**
+ * Hash table of search states keyed by the current city id and the
+ * Coverage of required flights. Keys are stored flat in primitive
+ * arrays with open addressing so a lookup never walks a list or
+ * allocates. Each key keeps one integer value, usually a cost
+ */
+public class StateTable {
+	private static final int EMPTY = -1;
+	private static final int START_CAPACITY = 1024;
+
+	private int numWords;
+	private int[] cities;
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * @param integer number of required flights in the coverages stored
+	 */
+	public StateTable(int numFlights) {
+		numWords = (numFlights + 63) >>> 6;
+		allocate(START_CAPACITY);
+	}
+
+	/**
+	 * Gives number of states stored
+	 * @return integer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the state is in the table
+	 * @param integer city id
+	 * @param Coverage of required flights
+	 * @return true if it has been stored. false otherwise
+	 */
+	public boolean contains(int city, Coverage covered) {
+		return cities[find(city, covered.getWords(), 0)] != EMPTY;
+	}
+
+	/**
+	 * Gives the value stored for a state
+	 * @param integer city id
+	 * @param Coverage of required flights
+	 * @return integer value. -1 if the state isn't stored
+	 */
+	public int get(int city, Coverage covered) {
+		return get(city, covered.getWords());
+	}
+
+	/**
+	 * Stores a state, replacing the value if it was already stored
+	 * @param integer city id
+	 * @param Coverage of required flights
+	 * @param integer value to store
+	 */
+	public void put(int city, Coverage covered, int value) {
+		put(city, covered.getWords(), value);
+	}
+
+	/**
+	 * Gives the value stored for a state whose Coverage is given
+	 * as its words, as NodeArena copies them out
+	 * @param integer city id
+	 * @param array of coverage words
+	 * @return integer value. -1 if the state isn't stored
+	 */
+	public int get(int city, long[] key) {
+		int slot = find(city, key, 0);
+		if(cities[slot] == EMPTY) {
+			return -1;
+		}
+		return values[slot];
+	}
+
+	/**
+	 * Stores a state whose Coverage is given as its words,
+	 * replacing the value if it was already stored
+	 * @param integer city id
+	 * @param array of coverage words
+	 * @param integer value to store
+	 */
+	public void put(int city, long[] key, int value) {
+		int slot = find(city, key, 0);
+
+		if(cities[slot] == EMPTY) {
+			cities[slot] = city;
+			System.arraycopy(key, 0, keys, slot * numWords, numWords);
+			size++;
+		}
+		values[slot] = value;
+
+		if(size * 2 > cities.length) {
+			grow();
+		}
+	}
+
+	/**
+	 * Linear probing for the slot holding the key, or the
+	 * empty slot where it belongs
+	 * @param integer city id
+	 * @param array holding the coverage words
+	 * @param integer index of the first word in the array
+	 * @return integer slot
+	 */
+	private int find(int city, long[] key, int from) {
+		long h = city * 0x9E3779B97F4A7C15L;
+		for(int i = 0; i < numWords; i++) {
+			h = mix(h, key[from + i]);
+		}
+		int slot = finish(h) & mask;
+
+		while(cities[slot] != EMPTY) {
+			if(cities[slot] == city && sameKey(slot, key, from)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private boolean sameKey(int slot, long[] key, int from) {
+		int base = slot * numWords;
+		for(int i = 0; i < numWords; i++) {
+			if(keys[base + i] != key[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long mix(long h, long word) {
+		return (h ^ word) * 0xC2B2AE3D27D4EB4FL;
+	}
+
+	private static int finish(long h) {
+		h ^= h >>> 31;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void allocate(int capacity) {
+		cities = new int[capacity];
+		keys = new long[capacity * numWords];
+		values = new int[capacity];
+		mask = capacity - 1;
+		size = 0;
+
+		for(int i = 0; i < capacity; i++) {
+			cities[i] = EMPTY;
+		}
+	}
+
+	/**
+	 * Doubles the table and re-inserts every key
+	 */
+	private void grow() {
+		int[] oldCities = cities;
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+
+		allocate(oldCities.length * 2);
+
+		for(int i = 0; i < oldCities.length; i++) {
+			if(oldCities[i] != EMPTY) {
+				int slot = find(oldCities[i], oldKeys, i * numWords);
+				cities[slot] = oldCities[i];
+				System.arraycopy(oldKeys, i * numWords, keys, slot * numWords, numWords);
+				values[slot] = oldValues[i];
+				size++;
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Fixed size table of the cheapest cost each state has been reached
+ * at during the current iteration of a depth first search. Unlike
+ * StateTable it never grows. Once a bucket is full the entry reached
+ * at the highest cost is replaced, so forgetting a state only costs
+ * searching below it again.
+ *
+ * Entries are stamped with the iteration that wrote them, so starting
+ * a new iteration clears the table without touching it
+ */
+public class TranspositionTable {
+	private static final int BUCKET = 4;
+	private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+	private int numWords;
+	private int[] cities;
+	private long[] keys;
+	private int[] costs;
+	private int[] stamps;
+	private int stamp;
+	private int mask;
+
+	/**
+	 * @param integer number of required flights in the coverages stored
+	 * @param long most bytes the table may take up
+	 */
+	public TranspositionTable(int numFlights, long maxBytes) {
+		numWords = (numFlights + 63) >>> 6;
+		long perEntry = 8L * numWords + 12;
+		long capacity = Long.highestOneBit(Math.max(BUCKET, maxBytes / perEntry));
+
+		// THE KEYS OF EVERY ENTRY HAVE TO FIT IN ONE ARRAY
+		long keyWords = Math.min(capacity * numWords, MAX_ARRAY);
+		capacity = Math.min(capacity, Long.highestOneBit(Math.max(BUCKET, keyWords / Math.max(1, numWords))));
+		capacity = Math.min(capacity, 1 << 30);
+		cities = new int[(int) capacity];
+		keys = new long[(int) (capacity * numWords)];
+		costs = new int[(int) capacity];
+		stamps = new int[(int) capacity];
+		mask = (int) capacity - 1;
+		stamp = 0;
+	}
+
+	/**
+	 * Gives number of entries the table can hold
+	 * @return integer
+	 */
+	public int capacity() {
+		return cities.length;
+	}
+
+	/**
+	 * Forgets every entry
+	 */
+	public void newIteration() {
+		stamp++;
+	}
+
+	/**
+	 * Records reaching a state unless it has already been reached
+	 * this iteration at no more cost
+	 * @param integer city id
+	 * @param Coverage of required flights
+	 * @param integer cost of reaching it
+	 * @return true if it had been reached as cheaply, false if
+	 * this is the cheapest way yet
+	 */
+	public boolean reachedAsCheaply(int city, Coverage covered, int cost) {
+		int first = hash(city, covered) & mask & ~(BUCKET - 1);
+		int replace = -1;
+
+		for(int slot = first; slot < first + BUCKET; slot++) {
+			if(stamps[slot] != stamp) {
+				if(replace == -1 || stamps[replace] == stamp) {
+					replace = slot;
+				}
+			} else if(cities[slot] == city && sameKey(slot, covered)) {
+				if(costs[slot] <= cost) {
+					return true;
+				}
+				costs[slot] = cost;
+				return false;
+			} else if(replace == -1 || (stamps[replace] == stamp && costs[slot] > costs[replace])) {
+				replace = slot;
+			}
+		}
+
+		cities[replace] = city;
+		for(int i = 0; i < numWords; i++) {
+			keys[replace * numWords + i] = covered.getWord(i);
+		}
+		costs[replace] = cost;
+		stamps[replace] = stamp;
+		return false;
+	}
+
+	private boolean sameKey(int slot, Coverage covered) {
+		int base = slot * numWords;
+		for(int i = 0; i < numWords; i++) {
+			if(keys[base + i] != covered.getWord(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int hash(int city, Coverage covered) {
+		long h = city * 0x9E3779B97F4A7C15L;
+		for(int i = 0; i < numWords; i++) {
+			h = (h ^ covered.getWord(i)) * 0xC2B2AE3D27D4EB4FL;
+		}
+		h ^= h >>> 31;
+		return (int) (h ^ (h >>> 32));
+	}
+}
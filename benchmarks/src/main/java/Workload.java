@@ -0,0 +1,336 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * A random network and request, built the same way every time
+ * for a given size, along with the operations the benchmarks time.
+ *
+ * JMH won't run benchmarks in the default package and classes in a
+ * package can't name the scheduler's classes, so the benchmarks make
+ * a Workload by reflection and only ever see the IntSupplier each
+ * operation is wrapped in
+ */
+public class Workload {
+	private static final long SEED = 2911;
+	private static final int SAMPLES = 4096;
+
+	private Random random;
+	private Graph map;
+	private CompiledGraph network;
+	private ShortestPaths paths;
+	private FlightIndex required;
+	private int[] requiredFrom;
+	private int[] requiredTo;
+	private String[] names;
+
+	// STATES ON RANDOM WALKS FROM THE START, AND PAIRS OF JOINED CITIES
+	private State[] states;
+	private int[] walk;
+	private int[] pairFrom;
+	private int[] pairTo;
+
+	/**
+	 * @param integer number of cities
+	 * @param integer percentage of city pairs with a flight between
+	 * them. The network is always connected
+	 * @param integer number of required flights
+	 */
+	public Workload(int numCities, int density, int numFlights) {
+		random = new Random(SEED);
+		buildNetwork(numCities, density);
+		pickFlights(numFlights);
+		paths = new ShortestPaths(network);
+		required = new FlightIndex(network, requiredFrom, requiredTo);
+		takeWalks();
+	}
+
+	/**
+	 * Runs the whole A* search from reading the request to
+	 * printing the route
+	 * @param String heuristic name, A or B
+	 */
+	public IntSupplier search(String heuristic) {
+		final String[] args = { "", "--engine=astar", "--heuristic=" + heuristic };
+		final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+		return () -> {
+			FlightScheduler fs = new FlightScheduler(network, paths);
+			fs.require(requiredFrom, requiredTo);
+			try {
+				fs.solve(args, out);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return fs.getExp();
+		};
+	}
+
+	/**
+	 * Works out the heuristic of one State after another
+	 * @param String heuristic name, A or B
+	 */
+	public IntSupplier calcHCost(String heuristic) {
+		final IStrategy calcH = heuristic.equals("B") ? new HeuristicB(network, required, paths)
+				: new HeuristicA(network, required);
+		final int[] next = { 0 };
+
+		return () -> {
+			State state = states[next[0]];
+			next[0] = (next[0] + 1) % states.length;
+			return calcH.calcHCost(state);
+		};
+	}
+
+	/**
+	 * Flies a walk edge by edge, keeping track of the
+	 * required flights covered
+	 */
+	public IntSupplier coverage() {
+		final Coverage empty = new Coverage(required.size());
+		final Coverage[] covered = { empty };
+		final int[] next = { 0 };
+
+		return () -> {
+			covered[0] = required.cover(covered[0], walk[next[0]]);
+			next[0] = (next[0] + 1) % walk.length;
+			if(next[0] == 0 || covered[0].numCovered() == required.size()) {
+				covered[0] = empty;
+			}
+			return covered[0].numCovered();
+		};
+	}
+
+	/**
+	 * Asks the closed set whether a state has been seen,
+	 * half of the states asked about having been added
+	 */
+	public IntSupplier duplicateCheck() {
+		final StateTable closed = new StateTable(required.size());
+		final int[] next = { 0 };
+
+		for(int i = 0; i < states.length; i += 2) {
+			closed.put(states[i].getLocation(), states[i].getCoverage(), states[i].getCostSoFar());
+		}
+		return () -> {
+			State state = states[next[0]];
+			next[0] = (next[0] + 1) % states.length;
+			return closed.contains(state.getLocation(), state.getCoverage()) ? 1 : 0;
+		};
+	}
+
+	/**
+	 * Looks up the flight between two cities by name
+	 * in the Graph read from the input
+	 */
+	public IntSupplier getEdge() {
+		final int[] next = { 0 };
+
+		return () -> {
+			int i = next[0];
+			next[0] = (i + 1) % pairFrom.length;
+			return map.getEdge(names[pairFrom[i]], names[pairTo[i]]).getFlightTime();
+		};
+	}
+
+	/**
+	 * Looks up the flight between two cities by id
+	 * in the CompiledGraph
+	 */
+	public IntSupplier findEdge() {
+		final int[] next = { 0 };
+
+		return () -> {
+			int i = next[0];
+			next[0] = (i + 1) % pairFrom.length;
+			return network.findEdge(pairFrom[i], pairTo[i]);
+		};
+	}
+
+	/**
+	 * Makes a change to the network or request and then finds the
+	 * optimal route again from scratch, building a new shortest path
+	 * table and searching with HeuristicB
+	 */
+	public IntSupplier freshReplan() {
+		final Random changes = new Random(SEED);
+		final CompiledGraph[] current = { network };
+		final int[][] request = { requiredFrom, requiredTo };
+		final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+		final String[] args = { "", "--engine=astar", "--heuristic=B" };
+		final int[] count = { 0 };
+
+		return () -> {
+			int[] change = nextChange(changes, current[0], count[0]++);
+			if(change[0] == 0) {
+				current[0] = current[0].withDelay(change[1], change[2]);
+			} else if(change[0] == 1) {
+				// BOTH WAYS, AS THE PLANNER CHANGES THEM
+				int back = current[0].findEdge(current[0].getTarget(change[1]), current[0].getSource(change[1]));
+				current[0] = current[0].withFlightTime(change[1], change[2]).withFlightTime(back, change[2]);
+			} else if(change[0] == 2) {
+				request[0] = append(request[0], current[0].getSource(change[1]));
+				request[1] = append(request[1], current[0].getTarget(change[1]));
+			} else {
+				request[0] = Arrays.copyOf(request[0], request[0].length - 1);
+				request[1] = Arrays.copyOf(request[1], request[1].length - 1);
+			}
+			FlightScheduler fs = new FlightScheduler(current[0], new ShortestPaths(current[0]));
+			fs.require(request[0], request[1]);
+			try {
+				fs.solve(args, out);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return fs.getExp();
+		};
+	}
+
+	/**
+	 * Makes the same changes as freshReplan, replanning with
+	 * an IncrementalPlanner instead
+	 */
+	public IntSupplier incrementalReplan() {
+		final Random changes = new Random(SEED);
+		final IncrementalPlanner planner = new IncrementalPlanner(network, paths, network.getCity("Sydney"));
+		final int[] added = new int[2];
+		final int[] count = { 0 };
+
+		for(int i = 0; i < requiredFrom.length; i++) {
+			planner.addFlight(requiredFrom[i], requiredTo[i]);
+		}
+		planner.replan();
+		return () -> {
+			CompiledGraph current = planner.getNetwork();
+			int[] change = nextChange(changes, current, count[0]++);
+			if(change[0] == 0) {
+				planner.setDelay(change[1], change[2]);
+			} else if(change[0] == 1) {
+				planner.setFlightTime(current.getSource(change[1]), current.getTarget(change[1]), change[2]);
+			} else if(change[0] == 2) {
+				added[0] = current.getSource(change[1]);
+				added[1] = current.getTarget(change[1]);
+				planner.addFlight(added[0], added[1]);
+			} else {
+				planner.removeFlight(added[0], added[1]);
+			}
+			planner.replan();
+			return (int) planner.getMetrics().getExpanded();
+		};
+	}
+
+	/**
+	 * Cycles through a delay change, a flight time change, adding
+	 * a required flight and taking it away again
+	 * @return array of the kind of change, the city or edge changed
+	 * and the new minutes
+	 */
+	private static int[] nextChange(Random changes, CompiledGraph current, int count) {
+		int kind = count % 4;
+		if(kind == 0) {
+			return new int[] { 0, changes.nextInt(current.numCities()), 15 + changes.nextInt(106) };
+		} else if(kind == 1) {
+			return new int[] { 1, changes.nextInt(current.numEdges()), 30 + changes.nextInt(600) };
+		}
+		return new int[] { kind, changes.nextInt(current.numEdges()), 0 };
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] longer = Arrays.copyOf(array, array.length + 1);
+		longer[array.length] = value;
+		return longer;
+	}
+
+	/**
+	 * Joins the cities with a random tree so every city can be
+	 * reached, then adds random flights up to the density asked for
+	 */
+	private void buildNetwork(int numCities, int density) {
+		long numPairs = (long) numCities * (numCities - 1) / 2;
+		long numRoutes = Math.max(numCities - 1, numPairs * density / 100);
+		HashSet<Long> joined = new HashSet<Long>();
+
+		map = new Graph();
+		names = new String[numCities];
+		for(int i = 0; i < numCities; i++) {
+			names[i] = i == 0 ? "Sydney" : "City" + i;
+			map.addCity(new Node(names[i], 30 + random.nextInt(120)));
+		}
+		for(int i = 1; i < numCities; i++) {
+			join(random.nextInt(i), i, joined);
+		}
+		while(joined.size() < numRoutes) {
+			join(random.nextInt(numCities), random.nextInt(numCities), joined);
+		}
+		network = map.compile();
+
+		pairFrom = new int[SAMPLES];
+		pairTo = new int[SAMPLES];
+		for(int i = 0; i < SAMPLES; i++) {
+			int edge = random.nextInt(network.numEdges());
+			pairFrom[i] = network.getSource(edge);
+			pairTo[i] = network.getTarget(edge);
+		}
+	}
+
+	private void join(int a, int b, HashSet<Long> joined) {
+		if(a == b || !joined.add((long) Math.min(a, b) * Integer.MAX_VALUE + Math.max(a, b))) {
+			return;
+		}
+		map.connectCities(names[a], names[b], 30 + random.nextInt(600));
+	}
+
+	/**
+	 * Picks distinct random flights to require
+	 */
+	private void pickFlights(int numFlights) {
+		LinkedHashSet<Long> picked = new LinkedHashSet<Long>();
+		int wanted = Math.min(numFlights, network.numEdges());
+
+		requiredFrom = new int[wanted];
+		requiredTo = new int[wanted];
+		while(picked.size() < wanted) {
+			int edge = random.nextInt(network.numEdges());
+			long key = (long) network.getSource(edge) * network.numCities() + network.getTarget(edge);
+			if(picked.add(key)) {
+				requiredFrom[picked.size() - 1] = network.getSource(edge);
+				requiredTo[picked.size() - 1] = network.getTarget(edge);
+			}
+		}
+	}
+
+	/**
+	 * Random walks from the start, recording every edge taken and
+	 * every State passed through
+	 */
+	private void takeWalks() {
+		IStrategy calcH = new HeuristicA(network, required);
+		int start = network.getCity("Sydney");
+		State current = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+
+		states = new State[SAMPLES];
+		walk = new int[SAMPLES];
+		for(int i = 0; i < SAMPLES; i++) {
+			int city = current.getLocation();
+			int edge = network.edgeStart(city) + random.nextInt(network.edgeEnd(city) - network.edgeStart(city));
+
+			State child = new State(network.getTarget(edge), current, edge,
+					current.getCostSoFar() + network.getWeight(edge), current.getHeur(),
+					required.cover(current.getCoverage(), edge));
+			child.updateH(calcH.calcHCost(child));
+			states[i] = child;
+			walk[i] = edge;
+
+			// START AGAIN ONCE EVERYTHING IS COVERED OR THE WALK GETS LONG
+			if(child.numFlightsCovered() == required.size() || child.numEdge() > 64) {
+				current = new State(start, null, -1, 0, 0, new Coverage(required.size()));
+			} else {
+				current = child;
+			}
+		}
+	}
+}
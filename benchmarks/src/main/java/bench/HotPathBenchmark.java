@@ -0,0 +1,99 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The operations done for every State the search generates. Each
+ * call works on the next of a few thousand States taken from random
+ * walks over the network, so the numbers include realistic misses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+	@Param({ "50", "200", "1000" })
+	public int cities;
+
+	@Param({ "5", "20" })
+	public int density;
+
+	@Param({ "4", "8", "16" })
+	public int flights;
+
+	private IntSupplier heuristicA;
+	private IntSupplier heuristicB;
+	private IntSupplier coverage;
+	private IntSupplier duplicateCheck;
+	private IntSupplier getEdge;
+	private IntSupplier findEdge;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		Object workload = Workloads.create(cities, density, flights);
+
+		heuristicA = Workloads.operation(workload, "calcHCost", "A");
+		heuristicB = Workloads.operation(workload, "calcHCost", "B");
+		coverage = Workloads.operation(workload, "coverage");
+		duplicateCheck = Workloads.operation(workload, "duplicateCheck");
+		getEdge = Workloads.operation(workload, "getEdge");
+		findEdge = Workloads.operation(workload, "findEdge");
+	}
+
+	@Benchmark
+	public int heuristicA() {
+		return heuristicA.getAsInt();
+	}
+
+	@Benchmark
+	public int heuristicB() {
+		return heuristicB.getAsInt();
+	}
+
+	/**
+	 * Covering a flown edge and counting the flights covered
+	 */
+	@Benchmark
+	public int coverage() {
+		return coverage.getAsInt();
+	}
+
+	/**
+	 * The closed set lookup that replaced the visited list
+	 */
+	@Benchmark
+	public int duplicateCheck() {
+		return duplicateCheck.getAsInt();
+	}
+
+	/**
+	 * Graph.getEdge, used while reading the input
+	 */
+	@Benchmark
+	public int getEdge() {
+		return getEdge.getAsInt();
+	}
+
+	/**
+	 * CompiledGraph.findEdge, used by the searches
+	 */
+	@Benchmark
+	public int findEdge() {
+		return findEdge.getAsInt();
+	}
+}
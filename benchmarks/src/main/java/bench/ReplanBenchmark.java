@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the optimal route again after each change to the network
+ * or request, from scratch and with an IncrementalPlanner. Both see
+ * the same changes in the same order
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplanBenchmark {
+	@Param({ "50", "200" })
+	public int cities;
+
+	@Param({ "5", "20" })
+	public int density;
+
+	@Param({ "4", "6" })
+	public int flights;
+
+	private IntSupplier fresh;
+	private IntSupplier incremental;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		fresh = Workloads.operation(Workloads.create(cities, density, flights), "freshReplan");
+		incremental = Workloads.operation(Workloads.create(cities, density, flights), "incrementalReplan");
+	}
+
+	@Benchmark
+	public int fresh() {
+		return fresh.getAsInt();
+	}
+
+	@Benchmark
+	public int incremental() {
+		return incremental.getAsInt();
+	}
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole A* searches, from taking the request to printing the route.
+ * The network and its shortest path table are built once per trial
+ * as the server keeps them between requests
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({ "50", "200" })
+	public int cities;
+
+	@Param({ "5", "20" })
+	public int density;
+
+	@Param({ "3", "6" })
+	public int flights;
+
+	@Param({ "A", "B" })
+	public String heuristic;
+
+	private IntSupplier search;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		search = Workloads.operation(Workloads.create(cities, density, flights), "search", heuristic);
+	}
+
+	@Benchmark
+	public int aStarSearch() {
+		return search.getAsInt();
+	}
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Makes Workloads, which are in the default package with the rest
+ * of the scheduler, and fetches their operations by name
+ */
+final class Workloads {
+	private Workloads() {
+	}
+
+	/**
+	 * @param integer number of cities
+	 * @param integer percentage of city pairs joined by a flight
+	 * @param integer number of required flights
+	 * @return the Workload
+	 */
+	static Object create(int numCities, int density, int numFlights) throws ReflectiveOperationException {
+		return Class.forName("Workload").getConstructor(int.class, int.class, int.class)
+				.newInstance(numCities, density, numFlights);
+	}
+
+	/**
+	 * @param Workload made by create
+	 * @param name of the operation
+	 * @return the operation, ready to be called over and over
+	 */
+	static IntSupplier operation(Object workload, String name) throws ReflectiveOperationException {
+		return (IntSupplier) workload.getClass().getMethod(name).invoke(workload);
+	}
+
+	/**
+	 * @param Workload made by create
+	 * @param name of the operation
+	 * @param String heuristic name, A or B
+	 * @return the operation, ready to be called over and over
+	 */
+	static IntSupplier operation(Object workload, String name, String heuristic) throws ReflectiveOperationException {
+		return (IntSupplier) workload.getClass().getMethod(name, String.class).invoke(workload, heuristic);
+	}
+}
@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks batch answers: one file per request named after it, the same
+ * answer a single solve prints, an Error for a request which can't be
+ * read or solved without failing the rest, and manifest lines which
+ * would share an answer file refused
+ */
+public class BatchSolverTest {
+	@TempDir
+	File folder;
+
+	private CompiledGraph network;
+	private AtomicInteger tablesAsked;
+	private Supplier<ShortestPaths> paths;
+
+	@BeforeEach
+	void build() {
+		String[] names = {FlightScheduler.START_CITY, "A", "B", "C"};
+		int[] delays = {5, 3, 0, 9};
+		int[] from = {0, 1, 1, 2, 2, 3, 3, 0, 1, 3};
+		int[] to = {1, 0, 2, 1, 3, 2, 0, 3, 3, 1};
+		int[] times = {7, 7, 4, 4, 6, 6, 11, 11, 2, 2};
+		network = new CompiledGraph(names, delays, from, to, times);
+
+		ShortestPaths table = new ShortestPaths(network);
+		tablesAsked = new AtomicInteger();
+		paths = () -> {
+			tablesAsked.incrementAndGet();
+			return table;
+		};
+	}
+
+	@Test
+	void directoryAnswersEveryFile() throws Exception {
+		File requests = new File(folder, "requests");
+		write(new File(requests, "one.txt"), "Flight A B\nFlight B C\n");
+		write(new File(requests, "two.txt"), "City A 3\nTime A B 4\nFlight C A\n");
+		write(new File(requests, "bad.txt"), "Flight A Nowhere\n");
+		write(new File(requests, ".hidden"), "Flight A B\n");
+		File out = new File(folder, "out");
+
+		String[] withB = {"test", "--batch-threads=2", "--heuristic=B"};
+		int failed = batch(requests, out, withB);
+		assertEquals(1, failed);
+		String[] names = out.list();
+		Arrays.sort(names);
+		assertEquals(Arrays.asList("bad.txt.out", "one.txt.out", "two.txt.out"), Arrays.asList(names));
+		assertEquals(solve(FlightScheduler.START_CITY, withB, "Flight A B", "Flight B C"),
+				read(new File(out, "one.txt.out")));
+		assertEquals(solve(FlightScheduler.START_CITY, withB, "Flight C A"),
+				read(new File(out, "two.txt.out")));
+		assertEquals("Error Unknown city Nowhere\n", read(new File(out, "bad.txt.out")));
+	}
+
+	@Test
+	void manifestGivesEveryLineItsOwnAnswer() throws Exception {
+		write(new File(folder, "east/route.txt"), "Flight A B\n");
+		write(new File(folder, "west/route.txt"), "Flight C A\n");
+		File manifest = new File(folder, "manifest.txt");
+		write(manifest, "# two files of one name\neast/route.txt\nwest/route.txt\n\neast/route.txt B\nmissing.txt\n");
+		File out = new File(folder, "out");
+
+		String[] plain = {"test"};
+		int failed = batch(manifest, out, plain);
+		assertEquals(1, failed);
+		assertEquals(solve(FlightScheduler.START_CITY, plain, "Flight A B"), read(new File(out, "east_route.txt.out")));
+		assertEquals(solve(FlightScheduler.START_CITY, plain, "Flight C A"), read(new File(out, "west_route.txt.out")));
+		assertEquals(solve("B", plain, "Flight A B"), read(new File(out, "east_route.txt.B.out")));
+		assertTrue(read(new File(out, "missing.txt.out")).startsWith("Error no such file"));
+	}
+
+	@Test
+	void manifestRefusesLinesSharingAnAnswer() throws IOException {
+		write(new File(folder, "route.txt"), "Flight A B\n");
+		File manifest = new File(folder, "manifest.txt");
+		write(manifest, "route.txt A\nroute.txt A\n");
+
+		assertThrows(IllegalArgumentException.class, () -> batch(manifest, new File(folder, "out"), "test"));
+	}
+
+	@Test
+	void tableIsOnlyWorkedOutWhenNeeded() throws Exception {
+		File requests = new File(folder, "requests");
+		write(new File(requests, "one.txt"), "Flight A B\n");
+
+		batch(requests, new File(folder, "out"), "test", "--engine=astar", "--heuristic=A");
+		assertEquals(0, tablesAsked.get());
+		batch(requests, new File(folder, "out"), "test", "--engine=dp");
+		assertTrue(tablesAsked.get() > 0);
+	}
+
+	private int batch(File requests, File out, String... args) throws Exception {
+		return new BatchSolver(network, paths, args).solve(requests.getPath(), out.getPath());
+	}
+
+	/**
+	 * Solves a request directly, as the batch should
+	 * @return what the solve printed
+	 */
+	private String solve(String start, String[] args, String... flights) throws Exception {
+		int[] from = new int[flights.length];
+		int[] to = new int[flights.length];
+		for(int i = 0; i < flights.length; i++) {
+			String[] tokens = flights[i].split(" ");
+			from[i] = network.getCity(tokens[1]);
+			to[i] = network.getCity(tokens[2]);
+		}
+		FlightScheduler fs = new FlightScheduler(network, new ShortestPaths(network));
+		fs.setStart(start);
+		fs.require(from, to);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		fs.solve(args, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+	private static void write(File file, String text) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bucket queue polls in f-cost order against a heap, while
+ * the f-costs waiting move up far past where the search began and
+ * sometimes drop below the lowest one, as they can for a heuristic
+ * that isn't consistent
+ */
+public class BucketQueueTest {
+
+	@Test
+	void pollsInCostOrder() {
+		Random random = new Random(20261017L);
+		BucketQueue queue = new BucketQueue();
+		PriorityQueue<int[]> expected = new PriorityQueue<int[]>((a, b) -> a[0] - b[0]);
+		int f = 1000;
+		int node = 0;
+
+		for(int step = 0; step < 100000; step++) {
+			if(expected.isEmpty() || random.nextInt(100) < 50) {
+				// MOSTLY UPWARDS, NOW AND THEN BELOW THE LOWEST WAITING
+				int cost = random.nextInt(50) == 0 ? Math.max(0, f - random.nextInt(200)) : f + random.nextInt(40);
+				queue.add(node, cost);
+				expected.add(new int[] {cost, node});
+				node++;
+			} else {
+				int[] lowest = expected.poll();
+				int polled = queue.poll();
+				assertTrue(polled >= 0);
+				assertEquals(lowest[0], costOf(polled, expected, lowest), "step " + step);
+				f = Math.max(f, lowest[0]) + random.nextInt(3);
+			}
+			assertEquals(expected.size(), queue.size());
+		}
+		while(!expected.isEmpty()) {
+			int[] lowest = expected.poll();
+			assertEquals(lowest[0], costOf(queue.poll(), expected, lowest));
+		}
+		assertEquals(-1, queue.poll());
+	}
+
+	/**
+	 * Ties can be polled in any order, so the node the queue gave is
+	 * swapped for the one the heap gave if they cost the same
+	 * @return integer f-cost of the node polled
+	 */
+	private static int costOf(int polled, PriorityQueue<int[]> expected, int[] lowest) {
+		if(polled == lowest[1]) {
+			return lowest[0];
+		}
+		for(int[] waiting: expected) {
+			if(waiting[1] == polled) {
+				expected.remove(waiting);
+				expected.add(lowest);
+				return waiting[0];
+			}
+		}
+		return -1;
+	}
+}
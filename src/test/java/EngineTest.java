@@ -0,0 +1,365 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the engines and heuristics against a plain Dijkstra over
+ * (city, coverage) on small random networks. Exact engines must find
+ * the same cost as the reference, and every route printed must start
+ * at Sydney, only fly flights that exist, cover every required flight
+ * and cost what is printed. Some networks are split in two, so a
+ * required flight can't always be reached
+ */
+public class EngineTest {
+	private static final int NUM_NETWORKS = 150;
+	private static final String NO_ROUTE = "no route covers every required flight";
+
+	@TempDir
+	static File folder;
+
+	private static ArrayList<Instance> instances;
+
+	@BeforeAll
+	static void generate() throws IOException {
+		Random random = new Random(20260611L);
+		instances = new ArrayList<Instance>();
+		for(int i = 0; i < NUM_NETWORKS; i++) {
+			instances.add(new Instance(random, new File(folder, "pdb" + i).getPath()));
+		}
+	}
+
+	@Test
+	void aStarMatchesReference() throws Exception {
+		for(String heuristic: new String[] {"A", "B"}) {
+			checkExact("--engine=astar", "--heuristic=" + heuristic);
+		}
+		checkExact("--engine=astar", "--heuristic=B", "--arena=offheap");
+	}
+
+	@Test
+	void cachedHeuristicMatchesReference() throws Exception {
+		checkExact("--engine=astar", "--heuristic=B", "--cache=16");
+	}
+
+	@Test
+	void dynamicProgrammingMatchesReference() throws Exception {
+		checkExact("--engine=dp");
+	}
+
+	@Test
+	void parallelSearchMatchesReference() throws Exception {
+		for(String heuristic: new String[] {"A", "B", "R", "P"}) {
+			checkExact("--engine=hda", "--heuristic=" + heuristic, "--threads=2");
+		}
+	}
+
+	@Test
+	void parallelSearchThrowsWhatAWorkerThrew() {
+		Instance instance = instances.get(0);
+		FlightIndex required = new FlightIndex(instance.network, instance.from, instance.to);
+		AtomicInteger calls = new AtomicInteger();
+		IStrategy failing = node -> {
+			if(calls.incrementAndGet() > 1) {
+				throw new IllegalStateException("heuristic failed");
+			}
+			return 0;
+		};
+
+		// THE OTHER WORKERS MUST STOP RATHER THAN WAIT FOREVER
+		ParallelSearch hda = new ParallelSearch(instance.network, required, () -> failing, 4);
+		IllegalStateException thrown = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> assertThrows(IllegalStateException.class, () -> hda.search(0)));
+		assertEquals("heuristic failed", thrown.getMessage());
+	}
+
+	@Test
+	void iterativeDeepeningMatchesReferenceWithEveryHeuristic() throws Exception {
+		for(String heuristic: new String[] {"A", "B", "R", "P"}) {
+			checkExact("--engine=ida", "--heuristic=" + heuristic, "--memory=1");
+		}
+	}
+
+	@Test
+	void anytimeSearchMatchesReferenceWithoutBudget() throws Exception {
+		for(String heuristic: new String[] {"A", "B", "R", "P"}) {
+			checkExact("--engine=ara", "--heuristic=" + heuristic, "--budget=0");
+		}
+	}
+
+	@Test
+	void patternHeuristicMatchesReference() throws Exception {
+		checkExact("--engine=astar", "--heuristic=P");
+	}
+
+	@Test
+	void orderSearchMatchesReferenceWithEveryHeuristic() throws Exception {
+		for(String heuristic: new String[] {"A", "B", "R", "P"}) {
+			checkExact("--engine=order", "--heuristic=" + heuristic);
+		}
+	}
+
+	@Test
+	void localSearchGivesValidRoutes() throws Exception {
+		for(Instance instance: instances) {
+			Answer answer = instance.solve("--engine=lns", "--budget=10", "--threads=1");
+			if(instance.optimum == -1) {
+				assertEquals(-1, answer.cost, instance.describe());
+				continue;
+			}
+			assertTrue(answer.cost >= instance.optimum, instance.describe());
+		}
+	}
+
+	@Test
+	void postmanHeuristicMatchesReference() throws Exception {
+		checkExact("--engine=astar", "--heuristic=R");
+		checkExact("--engine=astar", "--heuristic=R", "--cache=16");
+	}
+
+	private static void checkExact(String... options) throws Exception {
+		for(Instance instance: instances) {
+			Answer answer = instance.solve(options);
+			assertEquals(instance.optimum, answer.cost, String.join(" ", options) + "\n" + instance.describe());
+		}
+	}
+
+	/**
+	 * Cost and route printed by one solve
+	 */
+	private static class Answer {
+		private long cost = -1;
+	}
+
+	/**
+	 * A random network with its required flights and their optimum
+	 */
+	private static class Instance {
+		private int numCities;
+		private int[] delays;
+		private int[][] minutes;
+		private int[] from;
+		private int[] to;
+		private CompiledGraph network;
+		private PatternDatabase patterns;
+		private long optimum;
+
+		Instance(Random random, String pdb) throws IOException {
+			numCities = 5 + random.nextInt(4);
+			delays = new int[numCities];
+			minutes = new int[numCities][numCities];
+			String[] names = new String[numCities];
+			for(int city = 0; city < numCities; city++) {
+				names[city] = city == 0 ? FlightScheduler.START_CITY : "City" + city;
+				delays[city] = random.nextInt(21);
+				Arrays.fill(minutes[city], -1);
+			}
+
+			// SOMETIMES NO TIME LINKS THE TWO HALVES
+			int split = random.nextInt(4) == 0 ? numCities / 2 : numCities;
+			ArrayList<int[]> edges = new ArrayList<int[]>();
+			for(int a = 0; a < numCities; a++) {
+				for(int b = a + 1; b < numCities; b++) {
+					boolean apart = (a < split) != (b < split);
+					if(apart || random.nextInt(100) >= 45) {
+						continue;
+					}
+					minutes[a][b] = minutes[b][a] = 1 + random.nextInt(30);
+					edges.add(new int[] {a, b});
+					edges.add(new int[] {b, a});
+				}
+			}
+			// EVERY CITY HAS AT LEAST ONE FLIGHT
+			for(int city = 0; city < numCities; city++) {
+				boolean linked = false;
+				for(int other = 0; other < numCities; other++) {
+					linked |= minutes[city][other] != -1;
+				}
+				int other = city < split ? (city + 1) % split : split + (city - split + 1) % (numCities - split);
+				if(!linked && other != city) {
+					minutes[city][other] = minutes[other][city] = 1 + random.nextInt(30);
+					edges.add(new int[] {city, other});
+					edges.add(new int[] {other, city});
+				}
+			}
+
+			int numRequired = 1 + random.nextInt(5);
+			from = new int[numRequired];
+			to = new int[numRequired];
+			for(int i = 0; i < numRequired; i++) {
+				int[] edge = edges.get(random.nextInt(edges.size()));
+				from[i] = edge[0];
+				to[i] = edge[1];
+			}
+
+			int[] edgeFrom = new int[edges.size()];
+			int[] edgeTo = new int[edges.size()];
+			int[] edgeMinutes = new int[edges.size()];
+			for(int i = 0; i < edges.size(); i++) {
+				edgeFrom[i] = edges.get(i)[0];
+				edgeTo[i] = edges.get(i)[1];
+				edgeMinutes[i] = minutes[edgeFrom[i]][edgeTo[i]];
+			}
+			network = new CompiledGraph(names, delays, edgeFrom, edgeTo, edgeMinutes);
+			PatternDatabase.write(network, new ShortestPaths(network), from, to, pdb);
+			patterns = PatternDatabase.load(pdb, network);
+			optimum = reference();
+		}
+
+		/**
+		 * Dijkstra over (city, coverage), covering the first uncovered
+		 * copy of a required flight each time it is flown
+		 * @return long cheapest cost. -1 if no route exists
+		 */
+		private long reference() {
+			int full = (1 << from.length) - 1;
+			long[][] best = new long[numCities][full + 1];
+			for(long[] row: best) {
+				Arrays.fill(row, Long.MAX_VALUE);
+			}
+			PriorityQueue<long[]> queue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+			best[0][0] = 0;
+			queue.add(new long[] {0, 0, 0});
+			long answer = Long.MAX_VALUE;
+
+			while(!queue.isEmpty()) {
+				long[] top = queue.poll();
+				int city = (int) top[1];
+				int covered = (int) top[2];
+				if(top[0] > best[city][covered]) {
+					continue;
+				}
+				for(int next = 0; next < numCities; next++) {
+					if(minutes[city][next] == -1) {
+						continue;
+					}
+					int now = covered;
+					for(int i = 0; i < from.length; i++) {
+						if((now & 1 << i) == 0 && from[i] == city && to[i] == next) {
+							now |= 1 << i;
+							break;
+						}
+					}
+					if(now == full) {
+						// NO DELAY AFTER LANDING THE LAST FLIGHT
+						answer = Math.min(answer, top[0] + minutes[city][next]);
+						continue;
+					}
+					long cost = top[0] + minutes[city][next] + delays[next];
+					if(cost < best[next][now]) {
+						best[next][now] = cost;
+						queue.add(new long[] {cost, next, now});
+					}
+				}
+			}
+			return answer == Long.MAX_VALUE ? -1 : answer;
+		}
+
+		/**
+		 * Solves with the options given and checks the route printed
+		 * @return Answer with the cost printed. -1 if there was no route
+		 */
+		Answer solve(String... options) throws InterruptedException {
+			String[] args = new String[options.length + 1];
+			args[0] = "test";
+			System.arraycopy(options, 0, args, 1, options.length);
+
+			FlightScheduler fs = new FlightScheduler(network, new ShortestPaths(network));
+			fs.usePatterns(patterns);
+			fs.require(from, to);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+			assertNotNull(fs.solve(args, out));
+			String[] lines = buffer.toString(StandardCharsets.UTF_8).split("\n");
+
+			Answer answer = new Answer();
+			int costLine = -1;
+			for(int i = 0; i < lines.length; i++) {
+				if(lines[i].startsWith("cost = ")) {
+					costLine = i;
+				}
+				if(lines[i].equals(NO_ROUTE)) {
+					return answer;
+				}
+			}
+			if(costLine == -1) {
+				fail(String.join(" ", options) + " printed no cost\n" + String.join("\n", lines) + "\n" + describe());
+			}
+			answer.cost = Long.parseLong(lines[costLine].substring("cost = ".length()));
+			checkRoute(Arrays.copyOfRange(lines, costLine + 1, lines.length), answer.cost, options);
+			return answer;
+		}
+
+		/**
+		 * Checks a printed route is connected, starts at Sydney,
+		 * covers every required flight and costs what was printed
+		 */
+		private void checkRoute(String[] flights, long cost, String[] options) {
+			String what = String.join(" ", options) + "\n" + String.join("\n", flights) + "\n" + describe();
+			boolean[] covered = new boolean[from.length];
+			int numCovered = 0;
+			int city = 0;
+			long total = 0;
+
+			for(String flight: flights) {
+				String[] tokens = flight.split(" ");
+				assertEquals(4, tokens.length, what);
+				int source = network.getCity(tokens[1]);
+				int target = network.getCity(tokens[3]);
+				assertEquals(city, source, what);
+				assertTrue(target != -1 && minutes[source][target] != -1, what);
+				assertTrue(numCovered < from.length, "route goes on after the last required flight\n" + what);
+
+				total += minutes[source][target] + delays[target];
+				for(int i = 0; i < from.length; i++) {
+					if(!covered[i] && from[i] == source && to[i] == target) {
+						covered[i] = true;
+						numCovered++;
+						break;
+					}
+				}
+				city = target;
+			}
+			assertEquals(from.length, numCovered, what);
+			assertEquals(cost, total - delays[city], what);
+		}
+
+		String describe() {
+			StringBuilder text = new StringBuilder();
+			for(int city = 0; city < numCities; city++) {
+				text.append("City ").append(network.getName(city)).append(' ').append(delays[city]).append('\n');
+			}
+			for(int a = 0; a < numCities; a++) {
+				for(int b = a + 1; b < numCities; b++) {
+					if(minutes[a][b] != -1) {
+						text.append("Time ").append(network.getName(a)).append(' ').append(network.getName(b))
+								.append(' ').append(minutes[a][b]).append('\n');
+					}
+				}
+			}
+			for(int i = 0; i < from.length; i++) {
+				text.append("Flight ").append(network.getName(from[i])).append(' ').append(network.getName(to[i]))
+						.append('\n');
+			}
+			return text.append("optimum ").append(optimum).toString();
+		}
+	}
+}
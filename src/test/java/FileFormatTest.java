@@ -0,0 +1,257 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the file readers turn down files which are truncated, damaged
+ * or were written for another network, rather than reading them as
+ * something else
+ */
+public class FileFormatTest {
+	private static final int[] FROM = {0, 2, 3};
+	private static final int[] TO = {1, 3, 1};
+
+	@TempDir
+	File folder;
+
+	private CompiledGraph network;
+	private CompiledGraph other;
+
+	@BeforeEach
+	void build() {
+		network = network(7);
+		other = network(8);
+	}
+
+	/**
+	 * Sydney, A, B and C in a ring with a chord, the flight time of
+	 * Sydney to A given so two networks can differ by it
+	 */
+	private static CompiledGraph network(int minutes) {
+		String[] names = {FlightScheduler.START_CITY, "A", "B", "C"};
+		int[] delays = {5, 3, 0, 9};
+		int[] from = {0, 1, 1, 2, 2, 3, 3, 0, 1, 3};
+		int[] to = {1, 0, 2, 1, 3, 2, 0, 3, 3, 1};
+		int[] times = {minutes, minutes, 4, 4, 6, 6, 11, 11, 2, 2};
+		return new CompiledGraph(names, delays, from, to, times);
+	}
+
+	@Test
+	void snapshotReadsBackWhatWasWritten() throws IOException {
+		String file = new File(folder, "net.snap").getPath();
+		NetworkSnapshot.write(network, FROM, TO, file);
+		NetworkSnapshot snapshot = new NetworkSnapshot(file);
+		snapshot.read();
+
+		assertEquals(network.fingerprint(), snapshot.getNetwork().fingerprint());
+		assertArrayEquals(FROM, snapshot.getRequiredFrom());
+		assertArrayEquals(TO, snapshot.getRequiredTo());
+	}
+
+	@Test
+	void snapshotRejectsTruncatedFiles() throws IOException {
+		String file = new File(folder, "net.snap").getPath();
+		NetworkSnapshot.write(network, FROM, TO, file);
+		long length = new File(file).length();
+
+		for(long keep: new long[] {length - 1, length / 2, 24, 10, 0}) {
+			truncate(file, keep);
+			assertThrows(IllegalArgumentException.class, () -> new NetworkSnapshot(file).read(), "kept " + keep);
+		}
+	}
+
+	@Test
+	void snapshotRejectsDamagedBytes() throws IOException {
+		String file = new File(folder, "net.snap").getPath();
+		NetworkSnapshot.write(network, FROM, TO, file);
+		byte[] clean = Files.readAllBytes(new File(file).toPath());
+
+		// EVERY BYTE PAST THE CHECKSUM IS CHECKED, AND THE HEADER BEFORE IT
+		for(int at = 0; at < clean.length; at++) {
+			byte[] damaged = clean.clone();
+			damaged[at] ^= 0x10;
+			Files.write(new File(file).toPath(), damaged);
+			assertThrows(IllegalArgumentException.class, () -> new NetworkSnapshot(file).read(), "byte " + at);
+		}
+	}
+
+	@Test
+	void patternDatabaseRejectsTruncatedFiles() throws IOException {
+		String file = new File(folder, "net.pdb").getPath();
+		PatternDatabase.write(network, new ShortestPaths(network), FROM, TO, file);
+		assertEquals(FROM.length, PatternDatabase.load(file, network).numFlights());
+		long length = new File(file).length();
+
+		for(long keep: new long[] {length - 1, length / 2, 24, 10, 0}) {
+			truncate(file, keep);
+			assertThrows(IllegalArgumentException.class, () -> PatternDatabase.load(file, network), "kept " + keep);
+		}
+	}
+
+	@Test
+	void patternDatabaseRejectsDamagedHeaders() throws IOException {
+		String file = new File(folder, "net.pdb").getPath();
+		PatternDatabase.write(network, new ShortestPaths(network), FROM, TO, file);
+		byte[] clean = Files.readAllBytes(new File(file).toPath());
+
+		// MAGIC, VERSION, FINGERPRINT, CITIES AND PATTERN SIZE
+		for(int at = 0; at < 24; at++) {
+			byte[] damaged = clean.clone();
+			damaged[at] ^= 0x01;
+			Files.write(new File(file).toPath(), damaged);
+			assertThrows(IllegalArgumentException.class, () -> PatternDatabase.load(file, network), "byte " + at);
+		}
+	}
+
+	@Test
+	void patternDatabaseRejectsAnotherNetwork() throws IOException {
+		String file = new File(folder, "net.pdb").getPath();
+		PatternDatabase.write(network, new ShortestPaths(network), FROM, TO, file);
+
+		assertThrows(IllegalArgumentException.class, () -> PatternDatabase.load(file, other));
+	}
+
+	@Test
+	void resultCacheReadsBackFromDisk() throws IOException {
+		int[] route = cacheOneRoute();
+		ResultCache fresh = new ResultCache(network, 8, folder.getPath());
+
+		assertArrayEquals(route, fresh.get(fresh.key(0, new FlightIndex(network, FROM, TO))));
+		assertEquals(1, fresh.getDiskHits());
+	}
+
+	@Test
+	void resultCacheIgnoresTruncatedFiles() throws IOException {
+		cacheOneRoute();
+		File file = routeFile(network);
+		long length = file.length();
+
+		for(long keep: new long[] {length - 1, length / 2, 8, 0}) {
+			truncate(file.getPath(), keep);
+			ResultCache fresh = new ResultCache(network, 8, folder.getPath());
+			assertNull(fresh.get(fresh.key(0, new FlightIndex(network, FROM, TO))), "kept " + keep);
+		}
+	}
+
+	@Test
+	void resultCacheIgnoresDamagedHeaders() throws IOException {
+		cacheOneRoute();
+		File file = routeFile(network);
+		byte[] clean = Files.readAllBytes(file.toPath());
+
+		// EVERYTHING BEFORE THE ROUTE ITSELF NAMES THE REQUEST
+		int routeAt = clean.length - 4 - 4 * routeLength(clean);
+		for(int at = 0; at < routeAt; at++) {
+			byte[] damaged = clean.clone();
+			damaged[at] ^= 0x01;
+			Files.write(file.toPath(), damaged);
+			ResultCache fresh = new ResultCache(network, 8, folder.getPath());
+			assertNull(fresh.get(fresh.key(0, new FlightIndex(network, FROM, TO))), "byte " + at);
+		}
+	}
+
+	@Test
+	void damagedCachedRouteIsSearchedAgain() throws Exception {
+		int[] route = cacheOneRoute();
+		String expected = solve(new ResultCache(network, 8, null));
+		File file = routeFile(network);
+		byte[] clean = Files.readAllBytes(file.toPath());
+
+		// A ROUTE WHICH NO LONGER FITS TOGETHER IS NOT TRUSTED
+		for(int i = 0; i < route.length; i++) {
+			byte[] damaged = clean.clone();
+			damaged[clean.length - 4 * (route.length - i) + 3] ^= 0x01;
+			Files.write(file.toPath(), damaged);
+			String answer = solve(new ResultCache(network, 8, folder.getPath()));
+			assertEquals(expected.substring(expected.indexOf("cost")), answer.substring(answer.indexOf("cost")));
+		}
+	}
+
+	@Test
+	void unusableCachedRouteCountsAsAMiss() throws Exception {
+		int[] route = cacheOneRoute();
+		ResultCache cache = new ResultCache(network, 8, null);
+		ResultCache.Key key = cache.key(0, new FlightIndex(network, FROM, TO));
+
+		// A ROUTE THAT STOPS SHORT OF THE LAST REQUIRED FLIGHT
+		cache.put(key, Arrays.copyOf(route, route.length - 1));
+		solve(cache);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertArrayEquals(route, cache.get(key));
+	}
+
+	@Test
+	void resultCacheIgnoresAnotherNetworksFiles() throws IOException {
+		cacheOneRoute();
+		ResultCache moved = new ResultCache(other, 8, folder.getPath());
+		ResultCache.Key key = moved.key(0, new FlightIndex(other, FROM, TO));
+
+		// THE FILE OF THE OLD NETWORK PUT WHERE THE NEW ONE LOOKS
+		File stale = routeFile(network);
+		File target = new File(new File(folder, Long.toHexString(other.fingerprint())), stale.getName());
+		Files.copy(stale.toPath(), target.toPath());
+		assertTrue(target.exists());
+		assertNull(moved.get(key));
+	}
+
+	/**
+	 * Solves the request once with a disk cache so its route is written
+	 * @return array of the edge ids of the route
+	 */
+	private int[] cacheOneRoute() throws IOException {
+		ResultCache cache = new ResultCache(network, 8, folder.getPath());
+		try {
+			solve(cache);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		int[] route = cache.get(cache.key(0, new FlightIndex(network, FROM, TO)));
+		assertNotNull(route);
+		return route;
+	}
+
+	private String solve(ResultCache cache) throws InterruptedException {
+		FlightScheduler fs = new FlightScheduler(network, new ShortestPaths(network));
+		fs.useResults(cache);
+		fs.require(FROM, TO);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		fs.solve(new String[] {"test"}, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+	private File routeFile(CompiledGraph map) {
+		File[] files = new File(folder, Long.toHexString(map.fingerprint())).listFiles(
+				file -> file.getName().endsWith(".route"));
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	private static int routeLength(byte[] file) {
+		int length = FROM.length;
+		int at = 4 + 4 + 8 + 4 + 4 + 8 * length;
+		return (file[at] & 0xFF) << 24 | (file[at + 1] & 0xFF) << 16 | (file[at + 2] & 0xFF) << 8 | file[at + 3] & 0xFF;
+	}
+
+	private static void truncate(String file, long length) throws IOException {
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.setLength(length);
+		}
+	}
+}
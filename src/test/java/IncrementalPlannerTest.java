@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks replanning after every kind of change gives the route the
+ * dp engine finds from nothing on the changed network, and that the
+ * updated shortest path table matches one worked out again
+ */
+public class IncrementalPlannerTest {
+	private static final int NUM_NETWORKS = 30;
+	private static final int NUM_CHANGES = 25;
+
+	@Test
+	void replanMatchesSolvingAgain() {
+		Random random = new Random(20261017L);
+
+		for(int n = 0; n < NUM_NETWORKS; n++) {
+			CompiledGraph network = network(random, 6 + random.nextInt(5));
+			IncrementalPlanner planner = new IncrementalPlanner(network, new ShortestPaths(network), 0);
+			ArrayList<int[]> required = new ArrayList<int[]>();
+			for(int i = 0; i < 3; i++) {
+				required.add(addFlight(random, planner));
+			}
+
+			for(int change = 0; change < NUM_CHANGES; change++) {
+				String what = "network " + n + " change " + change;
+				State planned = planner.replan();
+				CompiledGraph now = planner.getNetwork();
+				assertNotNull(planned, what);
+				assertEquals(solve(now, required), planned.getCostSoFar(), what);
+				assertEquals(required.size(), planned.numFlightsCovered(), what);
+				checkTable(now, planner.getPaths(), what);
+
+				int kind = random.nextInt(4);
+				if(kind == 0) {
+					planner.setDelay(random.nextInt(now.numCities()), random.nextInt(40));
+				} else if(kind == 1) {
+					int edge = random.nextInt(now.numEdges());
+					planner.setFlightTime(now.getSource(edge), now.getTarget(edge), 1 + random.nextInt(40));
+				} else if(kind == 2 && required.size() < 10) {
+					required.add(addFlight(random, planner));
+				} else if(required.size() > 1) {
+					int[] flight = required.remove(random.nextInt(required.size()));
+					assertTrue(planner.removeFlight(flight[0], flight[1]), what);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A ring through every city so every route can be finished,
+	 * with random flights across it
+	 */
+	private static CompiledGraph network(Random random, int numCities) {
+		String[] names = new String[numCities];
+		int[] delays = new int[numCities];
+		ArrayList<int[]> edges = new ArrayList<int[]>();
+
+		for(int city = 0; city < numCities; city++) {
+			names[city] = city == 0 ? FlightScheduler.START_CITY : "City" + city;
+			delays[city] = random.nextInt(30);
+		}
+		for(int a = 0; a < numCities; a++) {
+			for(int b = a + 1; b < numCities; b++) {
+				if(b == a + 1 || (a == 0 && b == numCities - 1) || random.nextInt(100) < 30) {
+					int minutes = 1 + random.nextInt(40);
+					edges.add(new int[] {a, b, minutes});
+					edges.add(new int[] {b, a, minutes});
+				}
+			}
+		}
+		int[] from = new int[edges.size()];
+		int[] to = new int[edges.size()];
+		int[] minutes = new int[edges.size()];
+		for(int i = 0; i < edges.size(); i++) {
+			from[i] = edges.get(i)[0];
+			to[i] = edges.get(i)[1];
+			minutes[i] = edges.get(i)[2];
+		}
+		return new CompiledGraph(names, delays, from, to, minutes);
+	}
+
+	private static int[] addFlight(Random random, IncrementalPlanner planner) {
+		CompiledGraph now = planner.getNetwork();
+		int edge = random.nextInt(now.numEdges());
+		int[] flight = {now.getSource(edge), now.getTarget(edge)};
+		planner.addFlight(flight[0], flight[1]);
+		return flight;
+	}
+
+	private static int solve(CompiledGraph network, ArrayList<int[]> required) {
+		int[] from = new int[required.size()];
+		int[] to = new int[required.size()];
+		for(int i = 0; i < required.size(); i++) {
+			from[i] = required.get(i)[0];
+			to[i] = required.get(i)[1];
+		}
+		FlightIndex index = new FlightIndex(network, from, to);
+		State goal = new HeldKarpSearch(network, index, new ShortestPaths(network)).search(0);
+		return goal.getCostSoFar();
+	}
+
+	private static void checkTable(CompiledGraph network, ShortestPaths updated, String what) {
+		ShortestPaths fresh = new ShortestPaths(network);
+		for(int from = 0; from < network.numCities(); from++) {
+			for(int to = 0; to < network.numCities(); to++) {
+				assertEquals(fresh.getCost(from, to), updated.getCost(from, to), what + " " + from + " to " + to);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks reading a file in chunks gives exactly what reading it in one
+ * go does, down to the city ids, edge order and required flights, and
+ * that a mistake is reported on the same line however the file is split
+ */
+public class NetworkParserTest {
+	private static final int[] CHUNKS = {2, 3, 4, 7, 16, 64};
+
+	@TempDir
+	File folder;
+
+	@Test
+	void chunksGiveTheSameNetwork() throws IOException {
+		String[] modes = {InstanceGenerator.RANDOM, InstanceGenerator.BACK_AND_FORTH};
+
+		for(int i = 0; i < modes.length; i++) {
+			String file = new File(folder, modes[i] + ".txt").getPath();
+			new InstanceGenerator(20261017L + i).write(file, modes[i], 300, 5, 40);
+			NetworkParser whole = parse(file, 1);
+
+			for(int chunks: CHUNKS) {
+				String what = modes[i] + " in " + chunks + " chunks";
+				NetworkParser split = parse(file, chunks);
+				assertSame(whole.getNetwork(), split.getNetwork(), what);
+				assertArrayEquals(whole.getRequiredFrom(), split.getRequiredFrom(), what);
+				assertArrayEquals(whole.getRequiredTo(), split.getRequiredTo(), what);
+			}
+		}
+	}
+
+	@Test
+	void mistakesNameTheSameLine() throws IOException {
+		String file = new File(folder, "network.txt").getPath();
+		new InstanceGenerator(20261017L).write(file, InstanceGenerator.RANDOM, 200, 5, 20);
+		List<String> lines = Files.readAllLines(new File(file).toPath(), StandardCharsets.UTF_8);
+
+		// A BAD LINE, A NEGATIVE DELAY AND A CITY NEVER DECLARED
+		String[] mistakes = {"Fly Sydney City1", "City Nowhere -4", "Flight Sydney Nowhere"};
+		for(String mistake: mistakes) {
+			List<String> damaged = new ArrayList<String>(lines);
+			damaged.add(damaged.size() * 2 / 3, mistake);
+			Files.write(new File(file).toPath(), damaged, StandardCharsets.UTF_8);
+
+			String expected = assertThrows(IllegalArgumentException.class, () -> parse(file, 1)).getMessage();
+			assertEquals(file + ":" + (damaged.size() * 2 / 3 + 1), expected.substring(0, expected.indexOf(": ")),
+					mistake);
+			for(int chunks: CHUNKS) {
+				assertEquals(expected, assertThrows(IllegalArgumentException.class, () -> parse(file, chunks))
+						.getMessage(), mistake + " in " + chunks + " chunks");
+			}
+		}
+	}
+
+	private static NetworkParser parse(String file, int chunks) throws IOException {
+		NetworkParser parser = new NetworkParser(file);
+		parser.parse(chunks);
+		return parser;
+	}
+
+	private static void assertSame(CompiledGraph expected, CompiledGraph actual, String what) {
+		assertEquals(expected.numCities(), actual.numCities(), what);
+		assertEquals(expected.numEdges(), actual.numEdges(), what);
+		for(int city = 0; city < expected.numCities(); city++) {
+			assertEquals(expected.getName(city), actual.getName(city), what);
+			assertEquals(expected.getDelay(city), actual.getDelay(city), what);
+		}
+		for(int edge = 0; edge < expected.numEdges(); edge++) {
+			assertEquals(expected.getSource(edge), actual.getSource(edge), what);
+			assertEquals(expected.getTarget(edge), actual.getTarget(edge), what);
+			assertEquals(expected.getWeight(edge), actual.getWeight(edge), what);
+		}
+		assertEquals(expected.fingerprint(), actual.fingerprint(), what);
+	}
+}
@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the server's protocol: requests end at "Solve", an empty line
+ * or the end of the stream, answers come back in the order asked, each
+ * ending in "End", and a bad request gets an "Error" line without
+ * stopping the ones after it
+ */
+public class SchedulerServerTest {
+	private CompiledGraph network;
+	private AtomicInteger tablesAsked;
+	private Supplier<ShortestPaths> paths;
+
+	@BeforeEach
+	void build() {
+		String[] names = {FlightScheduler.START_CITY, "A", "B", "C"};
+		int[] delays = {5, 3, 0, 9};
+		int[] from = {0, 1, 1, 2, 2, 3, 3, 0, 1, 3};
+		int[] to = {1, 0, 2, 1, 3, 2, 0, 3, 3, 1};
+		int[] times = {7, 7, 4, 4, 6, 6, 11, 11, 2, 2};
+		network = new CompiledGraph(names, delays, from, to, times);
+
+		ShortestPaths table = new ShortestPaths(network);
+		tablesAsked = new AtomicInteger();
+		paths = () -> {
+			tablesAsked.incrementAndGet();
+			return table;
+		};
+	}
+
+	@Test
+	void answersComeBackInOrder() throws Exception {
+		String[][] requests = {
+				{"Flight A B", "Flight B C"},
+				{"Flight C A"},
+				{"Flight Sydney A", "Flight A C", "Flight C B"},
+		};
+		String input = "Flight A B\nFlight B C\nSolve\nFlight C A\n\nFlight Sydney A\nFlight A C\nFlight C B\n";
+
+		List<String> answers = serve(input, "test", "--heuristic=B");
+		assertEquals(requests.length, answers.size());
+		for(int i = 0; i < requests.length; i++) {
+			assertEquals(solve(requests[i], "test", "--heuristic=B"), answers.get(i), "request " + i);
+		}
+	}
+
+	@Test
+	void badRequestsOnlyFailThemselves() throws Exception {
+		String input = "Flight A Nowhere\nSolve\nTime A B\nSolve\nFlight A B\nSolve\n";
+
+		List<String> answers = serve(input, "test");
+		assertEquals(3, answers.size());
+		assertEquals("Error Unknown city Nowhere\nEnd\n", answers.get(0));
+		assertTrue(answers.get(1).startsWith("Error Expected Flight from to"), answers.get(1));
+		assertEquals(solve(new String[] {"Flight A B"}, "test"), answers.get(2));
+	}
+
+	@Test
+	void tableIsOnlyWorkedOutWhenNeeded() throws Exception {
+		serve("Flight A B\nSolve\nFlight B C\n", "test", "--engine=astar", "--heuristic=A");
+		assertEquals(0, tablesAsked.get());
+
+		serve("Flight A B\n", "test", "--engine=dp");
+		assertTrue(tablesAsked.get() > 0);
+	}
+
+	/**
+	 * Serves a stream of requests
+	 * @return list of the answers, each with its "End" line
+	 */
+	private List<String> serve(String input, String... args) throws Exception {
+		SchedulerServer server = new SchedulerServer(network, paths, args);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		server.serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+		server.shutdown();
+
+		List<String> answers = new ArrayList<String>();
+		StringBuilder answer = new StringBuilder();
+		for(String line: out.toString(StandardCharsets.UTF_8).split("\n")) {
+			answer.append(line).append('\n');
+			if(line.equals("End")) {
+				answers.add(answer.toString());
+				answer.setLength(0);
+			}
+		}
+		assertEquals("", answer.toString());
+		return answers;
+	}
+
+	/**
+	 * Solves a request directly, as the server should
+	 * @return the answer with its "End" line
+	 */
+	private String solve(String[] request, String... args) throws Exception {
+		int[] from = new int[request.length];
+		int[] to = new int[request.length];
+		for(int i = 0; i < request.length; i++) {
+			String[] tokens = request[i].split(" ");
+			from[i] = network.getCity(tokens[1]);
+			to[i] = network.getCity(tokens[2]);
+		}
+		FlightScheduler fs = new FlightScheduler(network, new ShortestPaths(network));
+		fs.require(from, to);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		fs.solve(args, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+		return buffer.toString(StandardCharsets.UTF_8) + "End\n";
+	}
+}